@@ -0,0 +1,78 @@
+package com.eiselts.stickylistheaders;
+
+import java.util.Random;
+
+/**
+ * Synthetic header ids of a list, one per row, with sections whose sizes follow a
+ * distribution around a mean. Header ids ascend from section to section, like the dates or
+ * initials lists are usually sectioned by. Public as the generated benchmarks set it from
+ * their parameters.
+ */
+public final class HeaderIdDataset implements SectionIndex.HeaderIdSource {
+
+	/** How the sizes of the sections are distributed around their mean. */
+	public enum Distribution {
+		/** Every section has the mean size. */
+		FIXED,
+		/** Sizes are uniformly distributed between 1 and twice the mean. */
+		UNIFORM,
+		/** Sizes follow a geometric distribution, many small sections and a few large ones. */
+		GEOMETRIC
+	}
+
+	private final long[] mHeaderIds;
+	private final int mSectionCount;
+
+	private HeaderIdDataset(long[] headerIds, int sectionCount) {
+		this.mHeaderIds = headerIds;
+		this.mSectionCount = sectionCount;
+	}
+
+	static HeaderIdDataset generate(int rowCount, Distribution distribution, int meanSectionSize,
+			long seed) {
+		final Random random = new Random(seed);
+		final long[] headerIds = new long[rowCount];
+		int sectionCount = 0;
+		int position = 0;
+		while (position < rowCount) {
+			final int sectionSize = nextSectionSize(random, distribution, meanSectionSize);
+			final int end = Math.min(position + sectionSize, rowCount);
+			for (; position < end; position++) {
+				headerIds[position] = sectionCount;
+			}
+			sectionCount++;
+		}
+		return new HeaderIdDataset(headerIds, sectionCount);
+	}
+
+	private static int nextSectionSize(Random random, Distribution distribution, int mean) {
+		switch (distribution) {
+			case FIXED:
+				return mean;
+			case UNIFORM:
+				return 1 + random.nextInt(2 * mean);
+			case GEOMETRIC:
+				// Inverse transform sampling with success probability 1 / mean
+				final double p = 1.0 / mean;
+				if (p >= 1) {
+					return 1;
+				}
+				return 1 + (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+			default:
+				throw new IllegalArgumentException("Unknown distribution " + distribution + ".");
+		}
+	}
+
+	@Override
+	public long getHeaderId(int position) {
+		return mHeaderIds[position];
+	}
+
+	int getCount() {
+		return mHeaderIds.length;
+	}
+
+	int getSectionCount() {
+		return mSectionCount;
+	}
+}
@@ -0,0 +1,60 @@
+package com.eiselts.stickylistheaders;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recycling headers through {@link HeaderPool} the way rows do while scrolling: a row
+ * scrolling out hands its header back, a row scrolling in takes one of its type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderPoolBenchmark {
+
+	@Param({"1", "4"})
+	public int typeCount;
+
+	private HeaderPool<Object> mPool;
+	private Object[] mHeaders;
+	private int mType;
+
+	@Setup
+	public void setUp() {
+		mPool = new HeaderPool<>(typeCount, HeaderPool.DEFAULT_CAPACITY_PER_TYPE);
+		mHeaders = new Object[typeCount];
+		for (int type = 0; type < typeCount; type++) {
+			mHeaders[type] = new Object();
+		}
+	}
+
+	@Benchmark
+	public Object recycle() {
+		final int type = mType;
+		mType = type + 1 == typeCount ? 0 : type + 1;
+		mPool.push(type, mHeaders[type]);
+		return mHeaders[type] = mPool.pop(type);
+	}
+
+	/** Taking a header from a pool without one for the type, as on the first scroll. */
+	@Benchmark
+	public Object miss() {
+		final int type = mType;
+		mType = type + 1 == typeCount ? 0 : type + 1;
+		return mPool.pop(type);
+	}
+}
@@ -0,0 +1,114 @@
+package com.eiselts.stickylistheaders;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header id lookups and section boundary detection of {@link SectionIndex}, next to the
+ * lookups in the adapter the index replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SectionIndexBenchmark {
+
+	private static final int LOOKUPS = 1024;
+
+	@Param({"1000", "100000", "10000000"})
+	public int rowCount;
+
+	@Param({"FIXED", "UNIFORM", "GEOMETRIC"})
+	public HeaderIdDataset.Distribution distribution;
+
+	@Param({"10", "1000"})
+	public int meanSectionSize;
+
+	private HeaderIdDataset mDataset;
+	private SectionIndex mSectionIndex;
+	// random positions, and the header ids of random sections
+	private final int[] mPositions = new int[LOOKUPS];
+	private final long[] mHeaderIds = new long[LOOKUPS];
+	private int mLookup;
+	private int mScrollPosition;
+
+	@Setup
+	public void setUp() {
+		mDataset = HeaderIdDataset.generate(rowCount, distribution, meanSectionSize, 42);
+		mSectionIndex = SectionIndex.build(mDataset, rowCount);
+		final Random random = new Random(7);
+		for (int i = 0; i < LOOKUPS; i++) {
+			mPositions[i] = random.nextInt(rowCount);
+			mHeaderIds[i] = random.nextInt(mDataset.getSectionCount());
+		}
+	}
+
+	private int nextRandomPosition() {
+		return mPositions[mLookup++ & (LOOKUPS - 1)];
+	}
+
+	// Moves one row down per call and wraps around, like scrolling through the list
+	private int nextScrollPosition() {
+		final int position = mScrollPosition;
+		mScrollPosition = position + 1 == rowCount ? 0 : position + 1;
+		return position;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public SectionIndex build() {
+		return SectionIndex.build(mDataset, rowCount);
+	}
+
+	@Benchmark
+	public long headerIdRandom() {
+		return mSectionIndex.getHeaderId(nextRandomPosition());
+	}
+
+	@Benchmark
+	public long headerIdScrolling() {
+		return mSectionIndex.getHeaderId(nextScrollPosition());
+	}
+
+	@Benchmark
+	public boolean isSectionStartScrolling() {
+		return mSectionIndex.isSectionStart(nextScrollPosition());
+	}
+
+	/** Section boundary detection without an index, comparing neighbouring header ids. */
+	@Benchmark
+	public boolean isSectionStartScrollingWithoutIndex() {
+		final int position = nextScrollPosition();
+		return position == 0
+				|| mDataset.getHeaderId(position) != mDataset.getHeaderId(position - 1);
+	}
+
+	@Benchmark
+	public int sectionForHeaderId() {
+		return mSectionIndex.getSectionForHeaderId(mHeaderIds[mLookup++ & (LOOKUPS - 1)]);
+	}
+
+	/** Inserts a row into a random section and removes it again. */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int rangeChange() {
+		final int position = nextRandomPosition();
+		mSectionIndex.replaceRange(position, 0, 1, mDataset);
+		mSectionIndex.replaceRange(position, 1, 0, mDataset);
+		return mSectionIndex.getSectionCount();
+	}
+}
@@ -0,0 +1,87 @@
+package com.eiselts.stickylistheaders;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the sticky header for the first visible row while scrolling, that is its header
+ * id and the next section start which pushes the sticky header up. Mirrors
+ * {@code StickyListHeadersListView#updateOrClearHeader} and {@code findPushingView}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StickyPositionBenchmark {
+
+	// rows on a typical screen, the children the list looks through without an index
+	private static final int VISIBLE_ROWS = 16;
+
+	@Param({"1000", "100000", "10000000"})
+	public int rowCount;
+
+	@Param({"FIXED", "UNIFORM", "GEOMETRIC"})
+	public HeaderIdDataset.Distribution distribution;
+
+	@Param({"10", "1000"})
+	public int meanSectionSize;
+
+	private HeaderIdDataset mDataset;
+	private SectionIndex mSectionIndex;
+	private int mFirstVisiblePosition;
+
+	@Setup
+	public void setUp() {
+		mDataset = HeaderIdDataset.generate(rowCount, distribution, meanSectionSize, 42);
+		mSectionIndex = SectionIndex.build(mDataset, rowCount);
+	}
+
+	// Moves one row down per call and wraps around, like scrolling through the list
+	private int nextFirstVisiblePosition() {
+		final int position = mFirstVisiblePosition;
+		mFirstVisiblePosition = position + 1 == rowCount ? 0 : position + 1;
+		return position;
+	}
+
+	@Benchmark
+	public long resolve() {
+		final int position = nextFirstVisiblePosition();
+		final int section = mSectionIndex.getSectionForPosition(position);
+		final long headerId = mSectionIndex.getHeaderIdForSection(section);
+		final int pushingPosition = section + 1 < mSectionIndex.getSectionCount()
+				? mSectionIndex.getPositionForSection(section + 1) : -1;
+		return headerId + pushingPosition;
+	}
+
+	/** Without an index every visible row below the first is asked for its header id. */
+	@Benchmark
+	public long resolveWithoutIndex() {
+		final int position = nextFirstVisiblePosition();
+		final long headerId = mDataset.getHeaderId(position);
+		final int end = Math.min(position + VISIBLE_ROWS, rowCount);
+		int pushingPosition = -1;
+		long previousHeaderId = headerId;
+		for (int i = position + 1; i < end; i++) {
+			final long rowHeaderId = mDataset.getHeaderId(i);
+			if (rowHeaderId != previousHeaderId) {
+				pushingPosition = i;
+				break;
+			}
+			previousHeaderId = rowHeaderId;
+		}
+		return headerId + pushingPosition;
+	}
+}
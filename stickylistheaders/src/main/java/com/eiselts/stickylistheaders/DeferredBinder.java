@@ -0,0 +1,65 @@
+package com.eiselts.stickylistheaders;
+
+import android.view.View;
+import android.widget.ListView;
+
+/**
+ * Completes the binds a {@link WrapperAdapter} deferred while the list was flinging. Once the
+ * list settles the visible rows with a lightweight bind are bound in full from the top, on
+ * animation frames, for as long as the budget of the frame allows. At least one row is bound
+ * per frame, so a slow row does not stall the others.
+ */
+final class DeferredBinder implements Runnable {
+
+	// A quarter of a frame at 60 Hz, leaving the rest to the layout the binds request
+	static final long DEFAULT_FRAME_BUDGET_NANOS = 4_000_000;
+
+	private final WrapperAdapter mAdapter;
+	private final ListView mList;
+	private long mFrameBudgetNanos;
+	private boolean mIsScheduled;
+
+	DeferredBinder(WrapperAdapter adapter, ListView list, long frameBudgetNanos) {
+		this.mAdapter = adapter;
+		this.mList = list;
+		this.mFrameBudgetNanos = frameBudgetNanos;
+	}
+
+	void setFrameBudget(long frameBudgetNanos) {
+		mFrameBudgetNanos = frameBudgetNanos;
+	}
+
+	/** Binds the deferred rows starting with the next frame, unless it already will. */
+	void schedule() {
+		if (!mIsScheduled) {
+			mIsScheduled = true;
+			mList.postOnAnimation(this);
+		}
+	}
+
+	void cancel() {
+		if (mIsScheduled) {
+			mIsScheduled = false;
+			mList.removeCallbacks(this);
+		}
+	}
+
+	@Override
+	public void run() {
+		mIsScheduled = false;
+		if (mAdapter.mDelegate == null || mAdapter.isDeferringBinds()) {
+			return;
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < mList.getChildCount(); i++) {
+			final View child = mList.getChildAt(i);
+			if (child instanceof WrapperView
+					&& mAdapter.completeDeferredBind((WrapperView) child, mList)
+					&& System.nanoTime() - start >= mFrameBudgetNanos) {
+				// The next frame goes on with the rows left, if there are any
+				schedule();
+				return;
+			}
+		}
+	}
+}
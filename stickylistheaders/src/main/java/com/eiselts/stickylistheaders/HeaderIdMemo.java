@@ -0,0 +1,74 @@
+package com.eiselts.stickylistheaders;
+
+import java.util.Arrays;
+
+/**
+ * Header ids of the positions around the visible rows, so the header id of a position is
+ * looked up in the adapter once per data version instead of once per caller. Positions are
+ * mapped to slots by their lowest bits, so a window of adjacent positions no larger than
+ * the capacity never evicts itself. All entries are dropped when the data version changes.
+ */
+final class HeaderIdMemo {
+
+	static final int DEFAULT_CAPACITY = 32;
+	// Rows around the visible ones which are kept as well, like the one above the first
+	static final int WINDOW_MARGIN = 8;
+
+	private static final int NO_POSITION = -1;
+
+	private int[] mPositions;
+	private long[] mHeaderIds;
+	private int mMask;
+	private int mVersion;
+
+	HeaderIdMemo() {
+		mPositions = new int[DEFAULT_CAPACITY];
+		mHeaderIds = new long[DEFAULT_CAPACITY];
+		mMask = DEFAULT_CAPACITY - 1;
+		Arrays.fill(mPositions, NO_POSITION);
+	}
+
+	/** Grows the memo to hold {@code rowCount} adjacent positions plus a margin. */
+	void ensureWindow(int rowCount) {
+		final int windowSize = rowCount + 2 * WINDOW_MARGIN;
+		if (windowSize <= mPositions.length) {
+			return;
+		}
+		final int[] positions = mPositions;
+		final long[] headerIds = mHeaderIds;
+		final int capacity = Integer.highestOneBit(windowSize - 1) << 1;
+		mPositions = new int[capacity];
+		mHeaderIds = new long[capacity];
+		mMask = capacity - 1;
+		Arrays.fill(mPositions, NO_POSITION);
+		// Entries keep their slot modulo the old capacity, so none of them collide
+		for (int slot = 0; slot < positions.length; slot++) {
+			if (positions[slot] != NO_POSITION) {
+				put(positions[slot], headerIds[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the header id of {@code position} is known for {@code version}.
+	 */
+	boolean contains(int position, int version) {
+		if (version != mVersion) {
+			Arrays.fill(mPositions, NO_POSITION);
+			mVersion = version;
+		}
+		return mPositions[position & mMask] == position;
+	}
+
+	/** Returns the header id of {@code position}, which must be contained. */
+	long get(int position) {
+		return mHeaderIds[position & mMask];
+	}
+
+	/** Stores the header id of {@code position} for the version last checked. */
+	void put(int position, long headerId) {
+		final int slot = position & mMask;
+		mPositions[slot] = position;
+		mHeaderIds[slot] = headerId;
+	}
+}
@@ -0,0 +1,105 @@
+package com.eiselts.stickylistheaders;
+
+/**
+ * The section indices of all header levels of an adapter, from the outermost level to the
+ * innermost. Sections of a level nest in those of the level above it, so a section starts
+ * wherever a section of an outer level starts, even if its own header id did not change.
+ * Every lookup on a level takes logarithmic time at most, like those of {@link SectionIndex}.
+ */
+final class HeaderLevelIndex {
+
+	/**
+	 * Source of the header ids of every level the index is built from.
+	 */
+	interface LevelHeaderIdSource {
+		long getHeaderId(int position, int level);
+	}
+
+	private final SectionIndex[] mLevels;
+
+	private HeaderLevelIndex(SectionIndex[] levels) {
+		this.mLevels = levels;
+	}
+
+	/**
+	 * Builds the index of {@code levelCount} levels for {@code count} positions, calling
+	 * {@link LevelHeaderIdSource#getHeaderId(int, int)} exactly once per position and level.
+	 */
+	static HeaderLevelIndex build(LevelHeaderIdSource source, int levelCount, int count) {
+		if (levelCount < 1) {
+			throw new IllegalArgumentException("Header level count must be at least 1.");
+		}
+		final SectionIndex[] levels = new SectionIndex[levelCount];
+		for (int level = 0; level < levelCount; level++) {
+			levels[level] = SectionIndex.build(new LevelSource(source, level), count,
+					level == 0 ? null : levels[level - 1]);
+		}
+		return new HeaderLevelIndex(levels);
+	}
+
+	/**
+	 * Updates every level after the positions
+	 * {@code [positionStart, positionStart + removedCount)} have been replaced by
+	 * {@code insertedCount} new positions starting at {@code positionStart}, see
+	 * {@link SectionIndex#replaceRange(int, int, int, SectionIndex.HeaderIdSource)}.
+	 */
+	void replaceRange(int positionStart, int removedCount, int insertedCount,
+			LevelHeaderIdSource source) {
+		// Outer levels first, the inner ones keep their sections nested in them
+		for (int level = 0; level < mLevels.length; level++) {
+			mLevels[level].replaceRange(positionStart, removedCount, insertedCount,
+					new LevelSource(source, level), level == 0 ? null : mLevels[level - 1]);
+		}
+	}
+
+	int getLevelCount() {
+		return mLevels.length;
+	}
+
+	/** Returns the section index of {@code level}, 0 being the outermost level. */
+	SectionIndex getLevel(int level) {
+		return mLevels[level];
+	}
+
+	/** Returns the section index of the innermost level, whose sections are the finest. */
+	SectionIndex getInnermostLevel() {
+		return mLevels[mLevels.length - 1];
+	}
+
+	/**
+	 * Returns the outermost level with a section starting at {@code position}, or
+	 * {@link #getLevelCount()} if no section starts there. As sections nest, a section starts
+	 * at every level below that one too.
+	 */
+	int getOutermostLevelStartingAt(int position) {
+		// The levels starting a section at the position are a suffix of all levels
+		int low = 0;
+		int high = mLevels.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (mLevels[mid].isSectionStart(position)) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	// The header ids of a single level
+	private static final class LevelSource implements SectionIndex.HeaderIdSource {
+
+		private final LevelHeaderIdSource mSource;
+		private final int mLevel;
+
+		LevelSource(LevelHeaderIdSource source, int level) {
+			this.mSource = source;
+			this.mLevel = level;
+		}
+
+		@Override
+		public long getHeaderId(int position) {
+			return mSource.getHeaderId(position, mLevel);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.eiselts.stickylistheaders;
+
+/**
+ * A bounded pool of recycled header views, keyed by header view type. Every type has a fixed
+ * capacity and is backed by a plain array used as a stack, so pushing and popping never
+ * allocates once a type has been used.
+ *
+ * @param <V> the type of the pooled headers
+ */
+final class HeaderPool<V> {
+
+	static final int DEFAULT_CAPACITY_PER_TYPE = 4;
+
+	private final Object[][] mHeaders;
+	private final int[] mSizes;
+	private final int mCapacityPerType;
+
+	private int mHitCount;
+	private int mMissCount;
+
+	HeaderPool(int typeCount, int capacityPerType) {
+		if (typeCount < 1) {
+			throw new IllegalArgumentException("Header view type count must be at least 1.");
+		}
+		this.mHeaders = new Object[typeCount][];
+		this.mSizes = new int[typeCount];
+		this.mCapacityPerType = capacityPerType;
+	}
+
+	/**
+	 * Adds a header of the given type to the pool.
+	 *
+	 * @return {@code false} if the pool for that type is full and the header was dropped
+	 */
+	boolean push(int type, V header) {
+		Object[] headers = mHeaders[type];
+		if (headers == null) {
+			if (mCapacityPerType == 0) {
+				return false;
+			}
+			headers = new Object[mCapacityPerType];
+			mHeaders[type] = headers;
+		}
+		final int size = mSizes[type];
+		if (size == headers.length) {
+			return false;
+		}
+		headers[size] = header;
+		mSizes[type] = size + 1;
+		return true;
+	}
+
+	/** Removes and returns a header of the given type, or {@code null} if there is none. */
+	@SuppressWarnings("unchecked")
+	V pop(int type) {
+		final int size = mSizes[type];
+		if (size == 0) {
+			mMissCount++;
+			return null;
+		}
+		final Object[] headers = mHeaders[type];
+		final V header = (V) headers[size - 1];
+		headers[size - 1] = null;
+		mSizes[type] = size - 1;
+		mHitCount++;
+		return header;
+	}
+
+	/** Returns the number of pooled headers of the given type. */
+	int size(int type) {
+		return mSizes[type];
+	}
+
+	int getTypeCount() {
+		return mSizes.length;
+	}
+
+	void clear() {
+		for (int type = 0; type < mSizes.length; type++) {
+			final Object[] headers = mHeaders[type];
+			for (int i = 0; i < mSizes[type]; i++) {
+				headers[i] = null;
+			}
+			mSizes[type] = 0;
+		}
+	}
+
+	int getHitCount() {
+		return mHitCount;
+	}
+
+	int getMissCount() {
+		return mMissCount;
+	}
+}
@@ -0,0 +1,186 @@
+package com.eiselts.stickylistheaders;
+
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
+import android.widget.ListAdapter;
+import android.widget.ListView;
+import android.widget.SectionIndexer;
+
+/**
+ * A {@link ListAdapter} which shows the headers of a {@link WrapperAdapter} as rows of their
+ * own in front of every section, instead of inside a {@link WrapperView} around the first
+ * row of the section. Rows are the plain views of the delegate.
+ *
+ * Positions of this adapter are called rows, they are translated to positions of the
+ * delegate through the section index, which is built on the calling thread whenever needed.
+ */
+class HeaderRowAdapter extends BaseAdapter implements SectionIndexer {
+
+	private final WrapperAdapter mAdapter;
+
+	private final DataSetObserver mDataSetObserver = new DataSetObserver() {
+		@Override
+		public void onChanged() {
+			notifyDataSetChanged();
+		}
+
+		@Override
+		public void onInvalidated() {
+			notifyDataSetInvalidated();
+		}
+	};
+
+	// Shared by all header rows, the clicked row is looked up in the list showing it
+	private final OnClickListener mHeaderClickHandler = new OnClickListener() {
+		@Override
+		public void onClick(View v) {
+			if (!(v.getParent() instanceof ListView)) {
+				return;
+			}
+			final ListView list = (ListView) v.getParent();
+			final int position = list.getPositionForView(v);
+			if (position == AdapterView.INVALID_POSITION) {
+				return;
+			}
+			final int row = position - list.getHeaderViewsCount();
+			if (row >= 0 && row < getCount() && isHeaderRow(row)) {
+				mAdapter.performHeaderClick(v, getDelegatePosition(row));
+			}
+		}
+	};
+
+	HeaderRowAdapter(WrapperAdapter adapter) {
+		mAdapter = adapter;
+		mAdapter.registerDataSetObserver(mDataSetObserver);
+	}
+
+	/** Stops following the changes of the wrapped adapter. */
+	void release() {
+		mAdapter.unregisterDataSetObserver(mDataSetObserver);
+	}
+
+	/** Returns {@code true} if {@code row} shows the header of a section. */
+	boolean isHeaderRow(int row) {
+		final SectionIndex sectionIndex = mAdapter.requireSectionIndex();
+		final int section = sectionIndex.getSectionForRow(row);
+		return sectionIndex.getPositionForSection(section) + section == row;
+	}
+
+	/**
+	 * Returns the position of the delegate shown in {@code row}. Header rows are translated
+	 * to the first position of their section.
+	 */
+	int getDelegatePosition(int row) {
+		final SectionIndex sectionIndex = mAdapter.requireSectionIndex();
+		final int section = sectionIndex.getSectionForRow(row);
+		return Math.max(row - section - 1, sectionIndex.getPositionForSection(section));
+	}
+
+	/**
+	 * Returns the row showing {@code position} of the delegate, for the first position of a
+	 * section that is its header row.
+	 */
+	int getRow(int position) {
+		final SectionIndex sectionIndex = mAdapter.requireSectionIndex();
+		final int section = sectionIndex.getSectionForPosition(position);
+		final int sectionStart = sectionIndex.getPositionForSection(section);
+		return position == sectionStart ? sectionStart + section : position + section + 1;
+	}
+
+	int getDelegateCount() {
+		return mAdapter.requireSectionIndex().getCount();
+	}
+
+	@Override
+	public int getCount() {
+		final SectionIndex sectionIndex = mAdapter.requireSectionIndex();
+		return sectionIndex.getCount() + sectionIndex.getSectionCount();
+	}
+
+	@Override
+	public Object[] getSections() {
+		return mAdapter.getSections();
+	}
+
+	@Override
+	public int getPositionForSection(int section) {
+		final int position = mAdapter.getPositionForSection(section);
+		return position < getDelegateCount() ? getRow(position) : position;
+	}
+
+	@Override
+	public int getSectionForPosition(int row) {
+		final int count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+		return mAdapter.getSectionForPosition(
+				getDelegatePosition(Math.max(0, Math.min(row, count - 1))));
+	}
+
+	@Override
+	public boolean areAllItemsEnabled() {
+		return false;
+	}
+
+	@Override
+	public boolean isEnabled(int row) {
+		// Header rows can not be selected or checked, clicks on them are handled by the header
+		return !isHeaderRow(row) && mAdapter.isEnabled(getDelegatePosition(row));
+	}
+
+	@Override
+	public Object getItem(int row) {
+		return isHeaderRow(row) ? null : mAdapter.getItem(getDelegatePosition(row));
+	}
+
+	@Override
+	public long getItemId(int row) {
+		return isHeaderRow(row) ? AdapterView.INVALID_ROW_ID
+				: mAdapter.getItemId(getDelegatePosition(row));
+	}
+
+	@Override
+	public boolean hasStableIds() {
+		return mAdapter.hasStableIds();
+	}
+
+	@Override
+	public int getItemViewType(int row) {
+		final int position = getDelegatePosition(row);
+		if (isHeaderRow(row)) {
+			// Header view types follow the view types of the rows
+			return mAdapter.getViewTypeCount() + mAdapter.getHeaderViewType(position);
+		}
+		return mAdapter.getItemViewType(position);
+	}
+
+	@Override
+	public int getViewTypeCount() {
+		return mAdapter.getViewTypeCount() + mAdapter.getHeaderViewTypeCount();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return mAdapter.isEmpty();
+	}
+
+	@Override
+	public View getView(int row, View convertView, ViewGroup parent) {
+		final int position = getDelegatePosition(row);
+		if (!isHeaderRow(row)) {
+			return mAdapter.getDelegateView(position, convertView, parent);
+		}
+		final View header = mAdapter.getHeaderView(position, convertView, parent);
+		if (header == null) {
+			throw new NullPointerException("Header view must not be null.");
+		}
+		header.setClickable(true);
+		header.setOnClickListener(mHeaderClickHandler);
+		return header;
+	}
+}
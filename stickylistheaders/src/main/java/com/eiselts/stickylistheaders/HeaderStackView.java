@@ -0,0 +1,105 @@
+package com.eiselts.stickylistheaders;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import static android.view.View.MeasureSpec.EXACTLY;
+import static android.view.View.MeasureSpec.UNSPECIFIED;
+
+/**
+ * The header of a row of a {@link StickyListHeadersLevelAdapter} which starts sections at
+ * several levels. Shows the headers of those levels on top of each other, the outermost first.
+ */
+final class HeaderStackView extends ViewGroup {
+
+	// Headers by level, null for the levels without a section starting at the row
+	private final View[] mHeaders;
+
+	HeaderStackView(Context context, int levelCount) {
+		super(context);
+		this.mHeaders = new View[levelCount];
+	}
+
+	int getLevelCount() {
+		return mHeaders.length;
+	}
+
+	View getHeader(int level) {
+		return mHeaders[level];
+	}
+
+	/** Returns the level {@code header} is shown for, or -1 if it is not in this stack. */
+	int getLevel(View header) {
+		for (int level = 0; level < mHeaders.length; level++) {
+			if (mHeaders[level] == header) {
+				return level;
+			}
+		}
+		return -1;
+	}
+
+	/** Returns the outermost level with a header, or the level count if there is none. */
+	int getFirstLevel() {
+		for (int level = 0; level < mHeaders.length; level++) {
+			if (mHeaders[level] != null) {
+				return level;
+			}
+		}
+		return mHeaders.length;
+	}
+
+	void setHeader(int level, View header) {
+		final View currentHeader = mHeaders[level];
+		if (currentHeader == header) {
+			return;
+		}
+		if (currentHeader != null) {
+			removeView(currentHeader);
+		}
+		mHeaders[level] = header;
+		if (header != null) {
+			final ViewParent parent = header.getParent();
+			if (parent instanceof ViewGroup) {
+				((ViewGroup) parent).removeView(header);
+			}
+			addView(header);
+		}
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		final int measuredWidth = MeasureSpec.getSize(widthMeasureSpec);
+		final int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(measuredWidth, EXACTLY);
+		int measuredHeight = 0;
+		for (View header : mHeaders) {
+			if (header == null) {
+				continue;
+			}
+			final LayoutParams params = header.getLayoutParams();
+			if (params != null && params.height > 0) {
+				header.measure(childWidthMeasureSpec, MeasureSpec.makeMeasureSpec(params.height,
+						EXACTLY));
+			} else {
+				header.measure(childWidthMeasureSpec, MeasureSpec.makeMeasureSpec(0,
+						UNSPECIFIED));
+			}
+			measuredHeight += header.getMeasuredHeight();
+		}
+		setMeasuredDimension(measuredWidth, measuredHeight);
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+		final int width = getWidth();
+		int headerTop = 0;
+		for (View header : mHeaders) {
+			if (header != null) {
+				final int headerBottom = headerTop + header.getMeasuredHeight();
+				header.layout(0, headerTop, width, headerBottom);
+				headerTop = headerBottom;
+			}
+		}
+	}
+}
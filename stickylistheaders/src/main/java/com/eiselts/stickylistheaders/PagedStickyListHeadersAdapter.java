@@ -0,0 +1,343 @@
+package com.eiselts.stickylistheaders;
+
+import android.database.DataSetObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link StickyListHeadersAdapter} for data sets too large to be kept in memory. Rows are
+ * loaded in pages of a fixed size from a {@link DataSource} on an executor, rows of pages
+ * which are not loaded yet are shown as placeholders. Loaded pages are kept in a LRU cache
+ * and evicted once they exceed the memory budget, see {@link #sizeOf(Object)}.
+ *
+ * The header ids of all rows are loaded ahead of the pages and kept as a summary per page,
+ * one entry per section starting in it, so sections and sticky headers are correct before
+ * the rows of a page are loaded. Until this summary is loaded the adapter is empty.
+ *
+ * @param <T> the type of the rows
+ */
+public abstract class PagedStickyListHeadersAdapter<T> extends BaseAdapter
+		implements StickyListHeadersAdapter {
+
+	/**
+	 * The rows of a paged adapter. All methods are called on the executor of the adapter, the
+	 * data set must not change until {@link #refresh()} is called.
+	 *
+	 * @param <T> the type of the rows
+	 */
+	public interface DataSource<T> {
+
+		/** Returns the number of rows. */
+		int getCount();
+
+		/**
+		 * Returns the header ids of the rows {@code [position, position + count)}, exactly
+		 * {@code count} of them, the refresh throws an {@link IllegalStateException} otherwise.
+		 * Called for every page on refresh, so it should only read what is needed for the
+		 * header ids.
+		 */
+		long[] loadHeaderIds(int position, int count);
+
+		/**
+		 * Returns the rows {@code [position, position + count)}. Missing rows at the end are
+		 * shown as placeholders.
+		 */
+		List<T> loadPage(int position, int count);
+	}
+
+	public static final int DEFAULT_PAGE_SIZE = 50;
+
+	private final DataSource<T> mDataSource;
+	private final Executor mExecutor;
+	private final int mPageSize;
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private final LruCache<Integer, Page<T>> mPages;
+	// Pages which are being loaded for the current generation
+	private final SparseBooleanArray mLoadingPages = new SparseBooleanArray();
+	private final List<RangeDataSetObserver> mRangeObservers = new ArrayList<>();
+	// Bumped on every refresh, loads of older generations are dropped
+	private int mGeneration;
+	private int mCount;
+	private HeaderIdSummary[] mHeaderIdSummaries = new HeaderIdSummary[0];
+	private int mPrefetchDistance = 1;
+
+	/**
+	 * Creates an adapter and starts loading the header ids of the data source.
+	 *
+	 * @param dataSource the rows of the adapter
+	 * @param executor the executor the data source is called on
+	 * @param pageSize the number of rows loaded at once
+	 * @param maxMemorySize the memory budget of the loaded pages, in the unit of
+	 * {@link #sizeOf(Object)}. Must hold the page shown and the pages prefetched around it,
+	 * {@code (2 * prefetch distance + 1) * pageSize} rows of size 1, or they would evict
+	 * each other as they are loaded
+	 */
+	public PagedStickyListHeadersAdapter(DataSource<T> dataSource, Executor executor,
+			int pageSize, int maxMemorySize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be at least 1.");
+		}
+		checkMemorySize(maxMemorySize, pageSize, mPrefetchDistance);
+		this.mDataSource = dataSource;
+		this.mExecutor = executor;
+		this.mPageSize = pageSize;
+		this.mPages = new LruCache<Integer, Page<T>>(maxMemorySize) {
+			@Override
+			protected int sizeOf(Integer page, Page<T> value) {
+				return value.mSize;
+			}
+		};
+		refresh();
+	}
+
+	/**
+	 * Returns the size of a row in the unit of the memory budget. Defaults to 1, which makes
+	 * the budget the number of rows kept in memory. Called on the main thread. Pages larger
+	 * than the budget are never shown, their rows stay placeholders.
+	 */
+	protected int sizeOf(T item) {
+		return 1;
+	}
+
+	/**
+	 * Get a View that displays the row at the specified position.
+	 *
+	 * @param position
+	 * The position of the row within the adapter's data set.
+	 * @param item
+	 * The row, or {@code null} if its page is not loaded yet and a placeholder should be shown.
+	 * @param convertView
+	 * The old view to reuse, if possible.
+	 * @param parent
+	 * The parent that this view will eventually be attached to.
+	 * @return
+	 * A View corresponding to the row or a placeholder for it.
+	 */
+	public abstract View getItemView(int position, T item, View convertView, ViewGroup parent);
+
+	/**
+	 * Sets the number of pages loaded ahead on both sides of a page when one of its rows is
+	 * shown. Defaults to 1.
+	 *
+	 * @throws IllegalArgumentException if the memory budget cannot hold the pages
+	 */
+	public void setPrefetchDistance(int pages) {
+		pages = Math.max(0, pages);
+		checkMemorySize(mPages.maxSize(), mPageSize, pages);
+		mPrefetchDistance = pages;
+	}
+
+	private static void checkMemorySize(int maxMemorySize, int pageSize, int prefetchDistance) {
+		if (maxMemorySize < (2L * prefetchDistance + 1) * pageSize) {
+			throw new IllegalArgumentException("Memory size must hold at least "
+					+ (2 * prefetchDistance + 1) + " pages.");
+		}
+	}
+
+	/**
+	 * Loads the header ids of the data source again, and drops all loaded pages once they
+	 * are. Rows are loaded again when they are shown.
+	 */
+	public final void refresh() {
+		final int generation = ++mGeneration;
+		mLoadingPages.clear();
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final int count = mDataSource.getCount();
+				final HeaderIdSummary[] summaries = new HeaderIdSummary[getPageCount(count)];
+				for (int page = 0; page < summaries.length; page++) {
+					final int start = page * mPageSize;
+					final int pageCount = Math.min(mPageSize, count - start);
+					final long[] headerIds = mDataSource.loadHeaderIds(start, pageCount);
+					if (headerIds == null || headerIds.length != pageCount) {
+						throw new IllegalStateException("Header ids of page " + page
+								+ " must have " + pageCount + " entries.");
+					}
+					summaries[page] = HeaderIdSummary.of(headerIds);
+				}
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation == mGeneration) {
+							mCount = count;
+							mHeaderIdSummaries = summaries;
+							mPages.evictAll();
+							notifyDataSetChanged();
+						}
+					}
+				});
+			}
+		});
+	}
+
+	private int getPageCount(int count) {
+		return (count + mPageSize - 1) / mPageSize;
+	}
+
+	/** Returns {@code true} if the rows of the page of {@code position} are loaded. */
+	public boolean isLoaded(int position) {
+		return mPages.get(position / mPageSize) != null;
+	}
+
+	/* --- Loading --- */
+
+	/** Loads the page of {@code position} and the pages around it if they are not loaded. */
+	private void loadAround(int position) {
+		final int page = position / mPageSize;
+		final int last = Math.min(page + mPrefetchDistance, mHeaderIdSummaries.length - 1);
+		for (int p = Math.max(0, page - mPrefetchDistance); p <= last; p++) {
+			if (!mLoadingPages.get(p) && mPages.get(p) == null) {
+				loadPage(p);
+			}
+		}
+	}
+
+	private void loadPage(final int page) {
+		final int generation = mGeneration;
+		final int start = page * mPageSize;
+		final int count = Math.min(mPageSize, mCount - start);
+		mLoadingPages.put(page, true);
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final List<T> items = mDataSource.loadPage(start, count);
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation == mGeneration) {
+							mLoadingPages.delete(page);
+							onPageLoaded(page, start, count, items);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	private void onPageLoaded(int page, int start, int count, List<T> items) {
+		int size = 0;
+		for (int i = 0; i < items.size(); i++) {
+			size += sizeOf(items.get(i));
+		}
+		mPages.put(page, new Page<>(items, size));
+		if (mPages.get(page) == null) {
+			// Larger than the whole budget and evicted right away, binding its rows again
+			// would only load it again
+			return;
+		}
+		// The header ids are unchanged, so only the rows of the page are bound again
+		for (int i = mRangeObservers.size() - 1; i >= 0; i--) {
+			mRangeObservers.get(i).onItemRangeReplaced(start, count, count);
+		}
+		notifyDataSetChanged();
+	}
+
+	/* --- Adapter --- */
+
+	@Override
+	public int getCount() {
+		return mCount;
+	}
+
+	/** Returns the row at {@code position}, or {@code null} if its page is not loaded yet. */
+	@Override
+	public T getItem(int position) {
+		final Page<T> page = mPages.get(position / mPageSize);
+		if (page == null) {
+			return null;
+		}
+		final int offset = position % mPageSize;
+		return offset < page.mItems.size() ? page.mItems.get(offset) : null;
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public final View getView(int position, View convertView, ViewGroup parent) {
+		loadAround(position);
+		return getItemView(position, getItem(position), convertView, parent);
+	}
+
+	@Override
+	public long getHeaderId(int position) {
+		return mHeaderIdSummaries[position / mPageSize].getHeaderId(position % mPageSize);
+	}
+
+	@Override
+	public void registerDataSetObserver(DataSetObserver observer) {
+		super.registerDataSetObserver(observer);
+		if (observer instanceof RangeDataSetObserver) {
+			mRangeObservers.add((RangeDataSetObserver) observer);
+		}
+	}
+
+	@Override
+	public void unregisterDataSetObserver(DataSetObserver observer) {
+		super.unregisterDataSetObserver(observer);
+		mRangeObservers.remove(observer);
+	}
+
+	private static final class Page<T> {
+
+		final List<T> mItems;
+		final int mSize;
+
+		Page(List<T> items, int size) {
+			this.mItems = items;
+			this.mSize = size;
+		}
+	}
+
+	/** The header ids of a page, stored once per section starting in it. */
+	private static final class HeaderIdSummary {
+
+		// Offsets into the page where the header id changes, the first one is always 0
+		private final int[] mStarts;
+		private final long[] mHeaderIds;
+
+		private HeaderIdSummary(int[] starts, long[] headerIds) {
+			this.mStarts = starts;
+			this.mHeaderIds = headerIds;
+		}
+
+		static HeaderIdSummary of(long[] headerIds) {
+			int runCount = headerIds.length > 0 ? 1 : 0;
+			for (int i = 1; i < headerIds.length; i++) {
+				if (headerIds[i] != headerIds[i - 1]) {
+					runCount++;
+				}
+			}
+			final int[] starts = new int[runCount];
+			final long[] runHeaderIds = new long[runCount];
+			for (int i = 0, run = 0; i < headerIds.length; i++) {
+				if (i == 0 || headerIds[i] != headerIds[i - 1]) {
+					starts[run] = i;
+					runHeaderIds[run++] = headerIds[i];
+				}
+			}
+			return new HeaderIdSummary(starts, runHeaderIds);
+		}
+
+		long getHeaderId(int offset) {
+			if (mStarts.length == 1) {
+				return mHeaderIds[0];
+			}
+			final int run = Arrays.binarySearch(mStarts, offset);
+			return mHeaderIds[run >= 0 ? run : -run - 2];
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.eiselts.stickylistheaders;
+
+import android.database.DataSetObserver;
+
+/**
+ * A {@link DataSetObserver} which is also told which positions of the data set changed.
+ * Every range notification is followed by a call to {@link #onChanged()} once the whole
+ * change has been described.
+ */
+abstract class RangeDataSetObserver extends DataSetObserver {
+
+	/**
+	 * Called when the positions {@code [positionStart, positionStart + removedCount)} have
+	 * been replaced by {@code insertedCount} new positions starting at {@code positionStart}.
+	 */
+	abstract void onItemRangeReplaced(int positionStart, int removedCount, int insertedCount);
+}
@@ -0,0 +1,289 @@
+package com.eiselts.stickylistheaders;
+
+import java.util.Arrays;
+
+/**
+ * A primitive index of the sections of an adapter. A section is a run of adjacent positions
+ * sharing the same header id and is stored as its first position plus its header id, so
+ * once the index is built no header boundary check has to call back into the adapter.
+ *
+ * This class is deliberately free of Android dependencies.
+ */
+final class SectionIndex {
+
+	/**
+	 * Source of the header ids the index is built from.
+	 */
+	interface HeaderIdSource {
+		long getHeaderId(int position);
+	}
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] mSectionStarts;
+	private long[] mHeaderIds;
+	private int mSectionCount;
+	private int mCount;
+
+	// Lookups while scrolling are almost always for the same or a neighbouring section, so
+	// the last result is checked before falling back to a binary search.
+	private int mLastSection;
+
+	// Distinct header ids in ascending order and the first section of each, built on the
+	// first lookup by header id
+	private long[] mSortedHeaderIds;
+	private int[] mFirstSectionsByHeaderId;
+	private int mSortedHeaderIdCount;
+
+	private SectionIndex(int[] sectionStarts, long[] headerIds, int sectionCount, int count) {
+		this.mSectionStarts = sectionStarts;
+		this.mHeaderIds = headerIds;
+		this.mSectionCount = sectionCount;
+		this.mCount = count;
+	}
+
+	/**
+	 * Builds the index for {@code count} positions in a single forward pass, calling
+	 * {@link HeaderIdSource#getHeaderId(int)} exactly once per position.
+	 */
+	static SectionIndex build(HeaderIdSource source, int count) {
+		return build(source, count, null);
+	}
+
+	/**
+	 * Builds the index like {@link #build(HeaderIdSource, int)}, but also starts a section
+	 * wherever a section of {@code outer} starts, so the sections nest in those of
+	 * {@code outer}. {@code outer} must cover the same positions, or be {@code null}.
+	 */
+	static SectionIndex build(HeaderIdSource source, int count, SectionIndex outer) {
+		int[] sectionStarts = new int[INITIAL_CAPACITY];
+		long[] headerIds = new long[INITIAL_CAPACITY];
+		int sectionCount = 0;
+		int outerSection = 0;
+		for (int position = 0; position < count; position++) {
+			long headerId = source.getHeaderId(position);
+			boolean isOuterSectionStart = false;
+			if (outer != null && outerSection < outer.mSectionCount
+					&& outer.mSectionStarts[outerSection] == position) {
+				isOuterSectionStart = true;
+				outerSection++;
+			}
+			if (sectionCount == 0 || headerIds[sectionCount - 1] != headerId
+					|| isOuterSectionStart) {
+				if (sectionCount == sectionStarts.length) {
+					sectionStarts = Arrays.copyOf(sectionStarts, sectionCount * 2);
+					headerIds = Arrays.copyOf(headerIds, sectionCount * 2);
+				}
+				sectionStarts[sectionCount] = position;
+				headerIds[sectionCount] = headerId;
+				sectionCount++;
+			}
+		}
+		return new SectionIndex(sectionStarts, headerIds, sectionCount, count);
+	}
+
+	/**
+	 * Updates the index after the positions
+	 * {@code [positionStart, positionStart + removedCount)} have been replaced by
+	 * {@code insertedCount} new positions starting at {@code positionStart}. Only the new
+	 * positions are looked up in {@code source}, all other header ids are taken from the
+	 * index itself.
+	 */
+	void replaceRange(int positionStart, int removedCount, int insertedCount,
+			HeaderIdSource source) {
+		replaceRange(positionStart, removedCount, insertedCount, source, null);
+	}
+
+	/**
+	 * Updates the index like {@link #replaceRange(int, int, int, HeaderIdSource)}, keeping
+	 * the sections nested in those of {@code outer}, which must already be updated.
+	 */
+	void replaceRange(int positionStart, int removedCount, int insertedCount,
+			HeaderIdSource source, SectionIndex outer) {
+		if (positionStart < 0 || removedCount < 0 || insertedCount < 0
+				|| positionStart + removedCount > mCount) {
+			throw new IndexOutOfBoundsException("Range [" + positionStart + ", "
+					+ (positionStart + removedCount) + ") is out of range [0, " + mCount + ").");
+		}
+		final int delta = insertedCount - removedCount;
+		final int tailStart = positionStart + removedCount;
+		final int capacity = Math.max(INITIAL_CAPACITY, mSectionCount + insertedCount + 1);
+		final int[] sectionStarts = new int[capacity];
+		final long[] headerIds = new long[capacity];
+		int sectionCount = 0;
+
+		// Sections starting before the range are kept, the last of them may get truncated
+		for (int section = 0; section < mSectionCount
+				&& mSectionStarts[section] < positionStart; section++) {
+			sectionStarts[sectionCount] = mSectionStarts[section];
+			headerIds[sectionCount] = mHeaderIds[section];
+			sectionCount++;
+		}
+
+		for (int position = positionStart; position < positionStart + insertedCount; position++) {
+			final long headerId = source.getHeaderId(position);
+			if (sectionCount == 0 || headerIds[sectionCount - 1] != headerId
+					|| outer != null && outer.isSectionStart(position)) {
+				sectionStarts[sectionCount] = position;
+				headerIds[sectionCount] = headerId;
+				sectionCount++;
+			}
+		}
+
+		// Sections after the range are shifted, the first of them may start inside the range
+		if (tailStart < mCount) {
+			for (int section = getSectionForPosition(tailStart); section < mSectionCount; section++) {
+				final int start = Math.max(mSectionStarts[section], tailStart) + delta;
+				final long headerId = mHeaderIds[section];
+				if (sectionCount == 0 || headerIds[sectionCount - 1] != headerId
+						|| outer != null && outer.isSectionStart(start)) {
+					sectionStarts[sectionCount] = start;
+					headerIds[sectionCount] = headerId;
+					sectionCount++;
+				}
+			}
+		}
+
+		mSectionStarts = sectionStarts;
+		mHeaderIds = headerIds;
+		mSectionCount = sectionCount;
+		mCount += delta;
+		mLastSection = 0;
+		mSortedHeaderIds = null;
+		mFirstSectionsByHeaderId = null;
+	}
+
+	/** Returns the number of positions covered by this index. */
+	int getCount() {
+		return mCount;
+	}
+
+	int getSectionCount() {
+		return mSectionCount;
+	}
+
+	/** Returns {@code true} if {@code position} is the first position of its section. */
+	boolean isSectionStart(int position) {
+		return mSectionStarts[getSectionForPosition(position)] == position;
+	}
+
+	/**
+	 * Returns the section containing {@code position}, which must be in
+	 * {@code [0, getCount())}.
+	 */
+	int getSectionForPosition(int position) {
+		if (position < 0 || position >= mCount) {
+			throw new IndexOutOfBoundsException("Position " + position + " is out of range [0, "
+					+ mCount + ").");
+		}
+		int section = mLastSection;
+		if (section < mSectionCount && mSectionStarts[section] <= position) {
+			if (section + 1 == mSectionCount || position < mSectionStarts[section + 1]) {
+				return section;
+			}
+			if (section + 2 == mSectionCount || position < mSectionStarts[section + 2]) {
+				mLastSection = section + 1;
+				return section + 1;
+			}
+		} else if (section > 0 && section <= mSectionCount
+				&& mSectionStarts[section - 1] <= position) {
+			mLastSection = section - 1;
+			return section - 1;
+		}
+		section = Arrays.binarySearch(mSectionStarts, 0, mSectionCount, position);
+		if (section < 0) {
+			// Not a section start, the insertion point is one past the containing section
+			section = -section - 2;
+		}
+		mLastSection = section;
+		return section;
+	}
+
+	/** Returns the first position of {@code section}. */
+	int getPositionForSection(int section) {
+		if (section < 0 || section >= mSectionCount) {
+			throw new IndexOutOfBoundsException("Section " + section + " is out of range [0, "
+					+ mSectionCount + ").");
+		}
+		return mSectionStarts[section];
+	}
+
+	long getHeaderIdForSection(int section) {
+		if (section < 0 || section >= mSectionCount) {
+			throw new IndexOutOfBoundsException("Section " + section + " is out of range [0, "
+					+ mSectionCount + ").");
+		}
+		return mHeaderIds[section];
+	}
+
+	long getHeaderId(int position) {
+		return mHeaderIds[getSectionForPosition(position)];
+	}
+
+	/**
+	 * Returns the first section with {@code headerId}, or -1 if there is none. Takes
+	 * logarithmic time after the first call since the index was built or changed.
+	 */
+	int getSectionForHeaderId(long headerId) {
+		if (mSortedHeaderIds == null) {
+			sortHeaderIds();
+		}
+		final int i = Arrays.binarySearch(mSortedHeaderIds, 0, mSortedHeaderIdCount, headerId);
+		return i < 0 ? -1 : mFirstSectionsByHeaderId[i];
+	}
+
+	private void sortHeaderIds() {
+		final long[] sortedHeaderIds = Arrays.copyOf(mHeaderIds, mSectionCount);
+		Arrays.sort(sortedHeaderIds);
+		// Sections which are not adjacent can share a header id
+		int sortedCount = 0;
+		for (int i = 0; i < sortedHeaderIds.length; i++) {
+			if (sortedCount == 0 || sortedHeaderIds[sortedCount - 1] != sortedHeaderIds[i]) {
+				sortedHeaderIds[sortedCount++] = sortedHeaderIds[i];
+			}
+		}
+		final int[] firstSections = new int[sortedCount];
+		Arrays.fill(firstSections, -1);
+		for (int section = 0; section < mSectionCount; section++) {
+			final int i = Arrays.binarySearch(sortedHeaderIds, 0, sortedCount, mHeaderIds[section]);
+			if (firstSections[i] == -1) {
+				firstSections[i] = section;
+			}
+		}
+		mSortedHeaderIds = sortedHeaderIds;
+		mFirstSectionsByHeaderId = firstSections;
+		mSortedHeaderIdCount = sortedCount;
+	}
+
+	/**
+	 * Returns the section containing {@code row} of a list which shows a header row in front
+	 * of every section, so the header row of a section is at
+	 * {@code getPositionForSection(section) + section}. The row must be in
+	 * {@code [0, getCount() + getSectionCount())}.
+	 */
+	int getSectionForRow(int row) {
+		if (row < 0 || row >= mCount + mSectionCount) {
+			throw new IndexOutOfBoundsException("Row " + row + " is out of range [0, "
+					+ (mCount + mSectionCount) + ").");
+		}
+		final int lastSection = mLastSection;
+		if (lastSection < mSectionCount && mSectionStarts[lastSection] + lastSection <= row
+				&& (lastSection + 1 == mSectionCount
+				|| row <= mSectionStarts[lastSection + 1] + lastSection)) {
+			return lastSection;
+		}
+		// The last section whose header row is at or before the row
+		int low = 0;
+		int high = mSectionCount - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (mSectionStarts[mid] + mid <= row) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		mLastSection = low;
+		return low;
+	}
+}
@@ -0,0 +1,16 @@
+package com.eiselts.stickylistheaders;
+
+/**
+ * A {@link StickyListHeadersAdapter} which keeps a section index of its own. The
+ * {@link WrapperAdapter} uses it instead of indexing the adapter again through
+ * {@link StickyListHeadersAdapter#getHeaderId(int)}, and never reads the adapter off the main
+ * thread.
+ */
+interface SectionIndexedAdapter {
+
+	/**
+	 * Returns the section index of the current data set, building it on the main thread if
+	 * there is none. The index must not be modified.
+	 */
+	SectionIndex requireSectionIndex();
+}
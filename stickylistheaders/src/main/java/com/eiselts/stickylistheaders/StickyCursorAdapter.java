@@ -0,0 +1,160 @@
+package com.eiselts.stickylistheaders;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.CursorAdapter;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link CursorAdapter} whose rows are sectioned by a column of the cursor. The header ids
+ * of all rows are read in a single forward pass over the cursor into a section index, every
+ * header id query is answered from it without moving the cursor. The list uses this index
+ * too instead of building one of its own.
+ *
+ * Cursors passed to {@link #changeCursorAsync(Cursor)} are counted and indexed on the
+ * executor and only swapped in once that is done, so neither the query nor the index block
+ * the main thread. Cursors set through {@link #swapCursor(Cursor)} or
+ * {@link #changeCursor(Cursor)}, and cursors whose content changed, are indexed on the main
+ * thread the next time a header id is needed.
+ */
+public abstract class StickyCursorAdapter extends CursorAdapter
+		implements StickyListHeadersAdapter, SectionIndexedAdapter {
+
+	private final String mHeaderColumn;
+	private final Executor mExecutor;
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	// Index of the current cursor, null until it is built
+	private SectionIndex mSectionIndex;
+	private int mHeaderColumnIndex = -1;
+	// Bumped on every cursor change, pending cursors of older generations are dropped
+	private int mGeneration;
+	private final DataSetObserver mCursorObserver = new DataSetObserver() {
+		@Override
+		public void onChanged() {
+			mSectionIndex = null;
+		}
+
+		@Override
+		public void onInvalidated() {
+			mSectionIndex = null;
+		}
+	};
+
+	/**
+	 * @param context the context of the rows
+	 * @param headerColumn the name of the column the header ids are read from
+	 * @param executor the executor cursors passed to {@link #changeCursorAsync(Cursor)} are
+	 * indexed on
+	 */
+	public StickyCursorAdapter(Context context, String headerColumn, Executor executor) {
+		super(context, null, 0);
+		this.mHeaderColumn = headerColumn;
+		this.mExecutor = executor;
+	}
+
+	/**
+	 * Returns the header id of the row the cursor is moved to. Defaults to the value of the
+	 * header column as a long, override it to derive header ids from other column types. Called
+	 * on the executor for cursors passed to {@link #changeCursorAsync(Cursor)}.
+	 */
+	protected long getHeaderId(Cursor cursor, int headerColumnIndex) {
+		return cursor.getLong(headerColumnIndex);
+	}
+
+	/**
+	 * Changes the cursor once it has been counted and indexed on the executor, and closes the
+	 * old one. A cursor superseded by a later change before it is swapped in is closed too.
+	 */
+	public void changeCursorAsync(final Cursor cursor) {
+		final int generation = ++mGeneration;
+		if (cursor == null) {
+			changeCursor(null);
+			return;
+		}
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final int headerColumnIndex = cursor.getColumnIndexOrThrow(mHeaderColumn);
+				final SectionIndex sectionIndex = buildSectionIndex(cursor, headerColumnIndex,
+						cursor.getCount());
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation != mGeneration) {
+							cursor.close();
+							return;
+						}
+						final Cursor old = swapCursor(cursor, sectionIndex, headerColumnIndex);
+						if (old != null) {
+							old.close();
+						}
+					}
+				});
+			}
+		});
+	}
+
+	@Override
+	public Cursor swapCursor(Cursor newCursor) {
+		mGeneration++;
+		return swapCursor(newCursor, null,
+				newCursor != null ? newCursor.getColumnIndexOrThrow(mHeaderColumn) : -1);
+	}
+
+	private Cursor swapCursor(Cursor newCursor, SectionIndex sectionIndex, int headerColumnIndex) {
+		final Cursor old = getCursor();
+		if (newCursor == old) {
+			return null;
+		}
+		if (old != null) {
+			old.unregisterDataSetObserver(mCursorObserver);
+		}
+		// Set before the swap, which notifies the list
+		mSectionIndex = sectionIndex;
+		mHeaderColumnIndex = headerColumnIndex;
+		super.swapCursor(newCursor);
+		if (newCursor != null) {
+			// Observers are notified last to first, so the index is dropped before the
+			// observer of the CursorAdapter notifies the list
+			newCursor.registerDataSetObserver(mCursorObserver);
+		}
+		return old;
+	}
+
+	/**
+	 * Reads the header id of the first {@code count} rows of {@code cursor} in a single
+	 * forward pass.
+	 */
+	private SectionIndex buildSectionIndex(final Cursor cursor, final int headerColumnIndex,
+			int count) {
+		return SectionIndex.build(new SectionIndex.HeaderIdSource() {
+			@Override
+			public long getHeaderId(int position) {
+				cursor.moveToPosition(position);
+				return StickyCursorAdapter.this.getHeaderId(cursor, headerColumnIndex);
+			}
+		}, count);
+	}
+
+	/**
+	 * Returns the section index of the current cursor. Cursors which were not indexed on the
+	 * executor are indexed here, on the main thread.
+	 */
+	@Override
+	public SectionIndex requireSectionIndex() {
+		final int count = getCount();
+		if (mSectionIndex == null || mSectionIndex.getCount() != count) {
+			mSectionIndex = buildSectionIndex(getCursor(), mHeaderColumnIndex, count);
+		}
+		return mSectionIndex;
+	}
+
+	@Override
+	public long getHeaderId(int position) {
+		return requireSectionIndex().getHeaderId(position);
+	}
+}
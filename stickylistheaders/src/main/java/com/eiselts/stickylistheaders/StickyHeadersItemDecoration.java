@@ -0,0 +1,337 @@
+package com.eiselts.stickylistheaders;
+
+import android.graphics.Canvas;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static android.view.View.MeasureSpec.EXACTLY;
+import static android.view.View.MeasureSpec.UNSPECIFIED;
+
+/**
+ * Draws the header of the topmost section of a {@link RecyclerView} on top of its rows, the
+ * {@link RecyclerView} counterpart of {@link StickyListHeadersListView}. The adapter of the
+ * {@link RecyclerView} must be the {@link StickyListHeadersRecyclerAdapter} passed to the
+ * constructor and rows have to be laid out in a single vertical column, like a vertical
+ * {@link androidx.recyclerview.widget.LinearLayoutManager} does.
+ *
+ * The sticky header is pushed up by the next section and hides the inline header it covers,
+ * exactly like in {@link StickyListHeadersListView}. Clicks on the sticky header and on the
+ * inline headers are reported through {@link #setOnHeaderClickListener}.
+ */
+public class StickyHeadersItemDecoration extends RecyclerView.ItemDecoration {
+
+	private final StickyListHeadersRecyclerAdapter mAdapter;
+	private RecyclerView mRecyclerView;
+
+	/* --- Header state --- */
+	private View mHeader;
+	private boolean mIsHeaderBound;
+	private long mHeaderId;
+	private int mHeaderPosition = RecyclerView.NO_POSITION;
+	private int mHeaderViewType;
+	private int mHeaderWidth;
+	private int mHeaderOffset;
+
+	/* --- Settings --- */
+	private boolean mAreHeadersSticky = true;
+
+	/* --- Touch handling --- */
+	private float mDownY;
+	private boolean mHeaderOwnsTouch;
+	private float mTouchSlop;
+
+	/* --- Other --- */
+	private StickyListHeadersListView.OnHeaderClickListener mOnHeaderClickListener;
+	private final InlineHeaderClickHandler mInlineHeaderClickHandler =
+			new InlineHeaderClickHandler();
+	private final StickyHeaderTouchHandler mStickyHeaderTouchHandler =
+			new StickyHeaderTouchHandler();
+	private final AdapterChangeObserver mAdapterChangeObserver = new AdapterChangeObserver();
+
+	public StickyHeadersItemDecoration(StickyListHeadersRecyclerAdapter adapter) {
+		mAdapter = adapter;
+	}
+
+	/**
+	 * Adds this decoration and its header touch handling to {@code recyclerView}, removing it
+	 * from the one it was attached to before. Pass {@code null} to detach it, the adapter is
+	 * only observed while the decoration is attached.
+	 */
+	public void attachToRecyclerView(RecyclerView recyclerView) {
+		if (mRecyclerView == recyclerView) {
+			return;
+		}
+		if (mRecyclerView != null) {
+			mRecyclerView.removeItemDecoration(this);
+			mRecyclerView.removeOnItemTouchListener(mStickyHeaderTouchHandler);
+			mAdapter.unregisterAdapterDataObserver(mAdapterChangeObserver);
+			clearHeader();
+		}
+		mRecyclerView = recyclerView;
+		if (recyclerView != null) {
+			mTouchSlop = ViewConfiguration.get(recyclerView.getContext()).getScaledTouchSlop();
+			mAdapter.registerAdapterDataObserver(mAdapterChangeObserver);
+			recyclerView.addItemDecoration(this);
+			recyclerView.addOnItemTouchListener(mStickyHeaderTouchHandler);
+		}
+	}
+
+	public void setOnHeaderClickListener(StickyListHeadersListView.OnHeaderClickListener listener) {
+		mOnHeaderClickListener = listener;
+		mAdapter.getWrapperAdapter().setOnHeaderClickListener(listener != null ?
+				mInlineHeaderClickHandler : null);
+	}
+
+	public void setAreHeadersSticky(boolean areHeadersSticky) {
+		mAreHeadersSticky = areHeadersSticky;
+		if (!areHeadersSticky) {
+			clearHeader();
+		}
+		if (mRecyclerView != null) {
+			mRecyclerView.invalidate();
+		}
+	}
+
+	public boolean areHeadersSticky() {
+		return mAreHeadersSticky;
+	}
+
+	@Override
+	public void onDraw(@NonNull Canvas canvas, @NonNull RecyclerView parent,
+			@NonNull RecyclerView.State state) {
+		// The header is resolved before the rows are drawn so the inline header it covers can
+		// be hidden in the same frame
+		updateOrClearHeader(parent);
+		updateHeaderVisibilities(parent);
+	}
+
+	@Override
+	public void onDrawOver(@NonNull Canvas canvas, @NonNull RecyclerView parent,
+			@NonNull RecyclerView.State state) {
+		if (mHeader == null) {
+			return;
+		}
+		canvas.save();
+		if (parent.getClipToPadding()) {
+			canvas.clipRect(0, parent.getPaddingTop(), parent.getWidth(), parent.getHeight());
+		}
+		canvas.translate(parent.getPaddingLeft(), mHeaderOffset);
+		mHeader.draw(canvas);
+		canvas.restore();
+	}
+
+	private void clearHeader() {
+		if (mHeader != null) {
+			mHeader = null;
+			mIsHeaderBound = false;
+			mHeaderPosition = RecyclerView.NO_POSITION;
+		}
+	}
+
+	private void updateOrClearHeader(RecyclerView parent) {
+		final int adapterCount = mAdapter.getItemCount();
+		if (adapterCount == 0 || !mAreHeadersSticky || parent.getChildCount() == 0) {
+			clearHeader();
+			return;
+		}
+
+		final View firstItem = parent.getChildAt(0);
+		int headerPosition = parent.getChildAdapterPosition(firstItem);
+		if (firstItem.getBottom() < stickyHeaderTop(parent)) {
+			headerPosition++;
+		}
+
+		final boolean isFirstViewBelowTop = headerPosition == 0
+				&& firstItem.getTop() >= stickyHeaderTop(parent);
+		final boolean isHeaderPositionOutsideAdapterRange = headerPosition > adapterCount - 1
+				|| headerPosition < 0;
+		if (isHeaderPositionOutsideAdapterRange || isFirstViewBelowTop) {
+			clearHeader();
+			return;
+		}
+
+		updateHeader(parent, headerPosition);
+	}
+
+	private void updateHeader(RecyclerView parent, int headerPosition) {
+		final WrapperAdapter adapter = mAdapter.getWrapperAdapter();
+		if (!mIsHeaderBound || mHeaderPosition != headerPosition) {
+			mHeaderPosition = headerPosition;
+			final long headerId = adapter.getHeaderId(headerPosition);
+			if (!mIsHeaderBound || mHeaderId != headerId) {
+				mHeaderId = headerId;
+				mIsHeaderBound = true;
+				// Only hand the current header back if it has the layout the new one needs
+				final int headerViewType = adapter.getHeaderViewType(headerPosition);
+				final View convertView = headerViewType == mHeaderViewType ? mHeader : null;
+				mHeaderViewType = headerViewType;
+				final View header = adapter.getHeaderView(headerPosition, convertView, parent);
+				if (header == null) {
+					throw new NullPointerException("header may not be null");
+				}
+				mHeader = header;
+				mHeaderWidth = -1;
+			}
+		}
+
+		final int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+		if (mHeaderWidth != width || mHeader.isLayoutRequested()) {
+			measureHeader(width);
+		}
+
+		final int top = stickyHeaderTop(parent);
+		int headerOffset = top;
+
+		// The first row at or below the top which has an inline header pushes the sticky
+		// header up. That is the start of the current section if it is aligned with the top,
+		// otherwise the start of the next one.
+		final SectionIndex sectionIndex = adapter.getSectionIndex();
+		View pushingRow = null;
+		if (sectionIndex != null) {
+			final RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+			final int section = sectionIndex.getSectionForPosition(headerPosition);
+			pushingRow = layoutManager.findViewByPosition(sectionIndex.getPositionForSection(section));
+			if ((pushingRow == null || pushingRow.getTop() < top)
+					&& section + 1 < sectionIndex.getSectionCount()) {
+				pushingRow = layoutManager.findViewByPosition(
+						sectionIndex.getPositionForSection(section + 1));
+			}
+		} else {
+			// The index is still being built, look for the row among the children
+			for (int i = 0; i < parent.getChildCount(); i++) {
+				final View child = parent.getChildAt(i);
+				if (child.getTop() >= top && child instanceof WrapperView
+						&& ((WrapperView) child).hasHeader()) {
+					pushingRow = child;
+					break;
+				}
+			}
+		}
+		if (pushingRow != null && pushingRow.getTop() >= top) {
+			headerOffset = Math.min(pushingRow.getTop() - mHeader.getMeasuredHeight(), headerOffset);
+		}
+		mHeaderOffset = headerOffset;
+	}
+
+	private void measureHeader(int width) {
+		final ViewGroup.LayoutParams lp = mHeader.getLayoutParams();
+		final int heightMeasureSpec = lp != null && lp.height > 0
+				? View.MeasureSpec.makeMeasureSpec(lp.height, EXACTLY)
+				: View.MeasureSpec.makeMeasureSpec(0, UNSPECIFIED);
+		mHeader.measure(View.MeasureSpec.makeMeasureSpec(width, EXACTLY), heightMeasureSpec);
+		mHeader.layout(0, 0, mHeader.getMeasuredWidth(), mHeader.getMeasuredHeight());
+		mHeaderWidth = width;
+	}
+
+	// hides the inline headers under the sticky header.
+	// Makes sure the other ones are showing
+	private void updateHeaderVisibilities(RecyclerView parent) {
+		final int top = stickyHeaderTop(parent);
+		final int childCount = parent.getChildCount();
+		for (int i = 0; i < childCount; i++) {
+			final View child = parent.getChildAt(i);
+			if (!(child instanceof WrapperView) || !((WrapperView) child).hasHeader()) {
+				continue;
+			}
+			final View childHeader = ((WrapperView) child).mHeader;
+			final int visibility = mHeader != null && child.getTop() < top
+					? View.INVISIBLE : View.VISIBLE;
+			if (childHeader.getVisibility() != visibility) {
+				childHeader.setVisibility(visibility);
+			}
+		}
+	}
+
+	private int stickyHeaderTop(RecyclerView parent) {
+		return parent.getClipToPadding() ? parent.getPaddingTop() : 0;
+	}
+
+	private boolean isInStickyHeader(MotionEvent e) {
+		return mHeader != null && e.getY() <= mHeaderOffset + mHeader.getMeasuredHeight();
+	}
+
+	private class AdapterChangeObserver extends RecyclerView.AdapterDataObserver {
+
+		@Override
+		public void onChanged() {
+			// Keep the header view but rebind it, the next draw resolves its position again
+			mIsHeaderBound = false;
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			if (mHeaderPosition >= positionStart && mHeaderPosition < positionStart + itemCount) {
+				mIsHeaderBound = false;
+			}
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			mHeaderPosition = RecyclerView.NO_POSITION;
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			mHeaderPosition = RecyclerView.NO_POSITION;
+		}
+
+		@Override
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+			mHeaderPosition = RecyclerView.NO_POSITION;
+		}
+	}
+
+	private class StickyHeaderTouchHandler implements RecyclerView.OnItemTouchListener {
+
+		@Override
+		public boolean onInterceptTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+			switch (e.getActionMasked()) {
+				case MotionEvent.ACTION_DOWN:
+					mDownY = e.getY();
+					mHeaderOwnsTouch = isInStickyHeader(e);
+					return false;
+				case MotionEvent.ACTION_MOVE:
+					if (mHeaderOwnsTouch && Math.abs(mDownY - e.getY()) > mTouchSlop) {
+						mHeaderOwnsTouch = false;
+					}
+					return false;
+				case MotionEvent.ACTION_UP:
+					if (mHeaderOwnsTouch && isInStickyHeader(e)) {
+						mHeaderOwnsTouch = false;
+						if (mOnHeaderClickListener != null) {
+							mOnHeaderClickListener.onHeaderClick(mHeader, mHeaderPosition, mHeaderId);
+						}
+						// Intercepting the up cancels the touch of the row under the header
+						return true;
+					}
+					mHeaderOwnsTouch = false;
+					return false;
+				default:
+					mHeaderOwnsTouch = false;
+					return false;
+			}
+		}
+
+		@Override
+		public void onTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+		}
+
+		@Override
+		public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+			mHeaderOwnsTouch = false;
+		}
+	}
+
+	private class InlineHeaderClickHandler implements WrapperAdapter.OnHeaderClickListener {
+
+		@Override
+		public void onHeaderClick(View header, int itemPosition, long headerId) {
+			mOnHeaderClickListener.onHeaderClick(header, itemPosition, headerId);
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package com.eiselts.stickylistheaders;
+
+import android.database.DataSetObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.BaseAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * A {@link StickyListHeadersAdapter} backed by an immutable list of rows. A new list is handed
+ * over with {@link #submitList(List)}, diffed against the current one on an executor, and
+ * applied as the inserted, removed and changed ranges of rows. Rows outside of those ranges
+ * keep their binding and the sticky header is only bound again if its row changed. The
+ * adapter has stable ids, see {@link #getStableItemId(Object)}, so rows which only moved up or
+ * down because of rows inserted or removed above them keep their binding too.
+ *
+ * A row changed if its contents changed or it got another header id. Moved rows are removed
+ * and inserted again.
+ *
+ * @param <T> the type of the rows
+ */
+public abstract class StickyListAdapter<T> extends BaseAdapter implements StickyListHeadersAdapter {
+
+	private static final int RANGE_SIZE = 4;
+
+	private final DiffUtil.ItemCallback<T> mItemCallback;
+	private final Executor mExecutor;
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private final List<RangeDataSetObserver> mRangeObservers = new ArrayList<>();
+	private List<T> mItems = Collections.emptyList();
+	// Bumped on every submitted list, diffs of older ones are dropped
+	private int mGeneration;
+
+	// While a diff is applied the rows are the first rows of the new list followed by the
+	// rows of the old list which are not replaced yet
+	private List<T> mPendingItems;
+	private int mPendingNewEnd;
+	private int mPendingOldEnd;
+
+	/**
+	 * @param itemCallback tells whether two rows are the same and whether their contents
+	 * are, called on the executor
+	 * @param executor the executor lists are diffed on
+	 */
+	public StickyListAdapter(DiffUtil.ItemCallback<T> itemCallback, Executor executor) {
+		this.mItemCallback = itemCallback;
+		this.mExecutor = executor;
+	}
+
+	/**
+	 * Returns the header id of {@code item}. Called on the executor while lists are diffed,
+	 * so it must only depend on the item.
+	 */
+	protected abstract long getItemHeaderId(T item);
+
+	/**
+	 * Returns the id of {@code item}, which has to be the same in every list it is submitted
+	 * in and differ from the ids of the other rows. Rows with the same id are kept bound when
+	 * they move. It is also the id {@link #getItemId(int)} returns for the row.
+	 */
+	protected abstract long getStableItemId(T item);
+
+	/** Returns the current list, which is not modified by the adapter. */
+	public List<T> getCurrentList() {
+		return mItems;
+	}
+
+	/** Sets the rows to {@code items}, see {@link #submitList(List, Runnable)}. */
+	public void submitList(List<T> items) {
+		submitList(items, null);
+	}
+
+	/**
+	 * Sets the rows to {@code items} once they are diffed against the current ones, which
+	 * only rebinds the rows that changed. The list must not be modified afterwards. Lists
+	 * submitted while an earlier one is being diffed replace it.
+	 *
+	 * @param commitCallback run on the main thread once the list is applied, may be null
+	 */
+	public void submitList(final List<T> items, final Runnable commitCallback) {
+		final int generation = ++mGeneration;
+		final List<T> oldItems = mItems;
+		final List<T> newItems = items != null ? items : Collections.<T>emptyList();
+		if (newItems == oldItems) {
+			if (commitCallback != null) {
+				commitCallback.run();
+			}
+			return;
+		}
+		if (oldItems.isEmpty() || newItems.isEmpty()) {
+			// Nothing to keep
+			mItems = newItems;
+			notifyDataSetChanged();
+			if (commitCallback != null) {
+				commitCallback.run();
+			}
+			return;
+		}
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				final int[] ranges = diff(oldItems, newItems);
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation == mGeneration) {
+							applyDiff(newItems, ranges);
+							if (commitCallback != null) {
+								commitCallback.run();
+							}
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Returns the ranges of rows to replace to turn {@code oldItems} into {@code newItems},
+	 * from the first row to the last. Every range is a group of {@link #RANGE_SIZE} values,
+	 * its position in the new and the old list, the removed and the inserted count.
+	 */
+	private int[] diff(final List<T> oldItems, final List<T> newItems) {
+		// Without moves the rows both lists have in common keep their order
+		final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+			@Override
+			public int getOldListSize() {
+				return oldItems.size();
+			}
+
+			@Override
+			public int getNewListSize() {
+				return newItems.size();
+			}
+
+			@Override
+			public boolean areItemsTheSame(int oldPosition, int newPosition) {
+				return mItemCallback.areItemsTheSame(oldItems.get(oldPosition),
+						newItems.get(newPosition));
+			}
+
+			@Override
+			public boolean areContentsTheSame(int oldPosition, int newPosition) {
+				return StickyListAdapter.this.areContentsTheSame(oldItems.get(oldPosition),
+						newItems.get(newPosition));
+			}
+		}, false);
+
+		final int oldCount = oldItems.size();
+		final int newCount = newItems.size();
+		int[] ranges = new int[RANGE_SIZE * 8];
+		int rangeCount = 0;
+		int oldPosition = 0;
+		int newPosition = 0;
+		while (oldPosition < oldCount || newPosition < newCount) {
+			int removedCount = 0;
+			while (oldPosition + removedCount < oldCount && result.convertOldPositionToNew(
+					oldPosition + removedCount) == DiffUtil.DiffResult.NO_POSITION) {
+				removedCount++;
+			}
+			int insertedCount = 0;
+			while (newPosition + insertedCount < newCount && result.convertNewPositionToOld(
+					newPosition + insertedCount) == DiffUtil.DiffResult.NO_POSITION) {
+				insertedCount++;
+			}
+			if (removedCount == 0 && insertedCount == 0) {
+				// The rows at both positions are the same row, replaced if its contents changed
+				int changedCount = 0;
+				while (oldPosition + changedCount < oldCount
+						&& newPosition + changedCount < newCount
+						&& result.convertOldPositionToNew(oldPosition + changedCount)
+								== newPosition + changedCount
+						&& !areContentsTheSame(oldItems.get(oldPosition + changedCount),
+								newItems.get(newPosition + changedCount))) {
+					changedCount++;
+				}
+				if (changedCount == 0) {
+					oldPosition++;
+					newPosition++;
+					continue;
+				}
+				removedCount = changedCount;
+				insertedCount = changedCount;
+			}
+			if (rangeCount * RANGE_SIZE == ranges.length) {
+				ranges = Arrays.copyOf(ranges, ranges.length * 2);
+			}
+			final int range = rangeCount * RANGE_SIZE;
+			ranges[range] = newPosition;
+			ranges[range + 1] = oldPosition;
+			ranges[range + 2] = removedCount;
+			ranges[range + 3] = insertedCount;
+			rangeCount++;
+			oldPosition += removedCount;
+			newPosition += insertedCount;
+		}
+		return Arrays.copyOf(ranges, rangeCount * RANGE_SIZE);
+	}
+
+	private boolean areContentsTheSame(T oldItem, T newItem) {
+		return getItemHeaderId(oldItem) == getItemHeaderId(newItem)
+				&& mItemCallback.areContentsTheSame(oldItem, newItem);
+	}
+
+	/**
+	 * Reports the ranges one by one to the range observers, each of which sees the rows as
+	 * they are after its range was replaced, and then notifies all observers once.
+	 */
+	private void applyDiff(List<T> newItems, int[] ranges) {
+		mPendingItems = newItems;
+		try {
+			for (int range = 0; range < ranges.length; range += RANGE_SIZE) {
+				final int position = ranges[range];
+				final int removedCount = ranges[range + 2];
+				final int insertedCount = ranges[range + 3];
+				// Rows before the range already are those of the new list
+				mPendingNewEnd = position + insertedCount;
+				mPendingOldEnd = ranges[range + 1] + removedCount;
+				for (int j = mRangeObservers.size() - 1; j >= 0; j--) {
+					mRangeObservers.get(j).onItemRangeReplaced(position, removedCount,
+							insertedCount);
+				}
+			}
+		} finally {
+			mPendingItems = null;
+		}
+		mItems = newItems;
+		notifyDataSetChanged();
+	}
+
+	/* --- Adapter --- */
+
+	@Override
+	public int getCount() {
+		if (mPendingItems != null) {
+			return mPendingNewEnd + mItems.size() - mPendingOldEnd;
+		}
+		return mItems.size();
+	}
+
+	@Override
+	public T getItem(int position) {
+		if (mPendingItems != null) {
+			return position < mPendingNewEnd ? mPendingItems.get(position)
+					: mItems.get(position - mPendingNewEnd + mPendingOldEnd);
+		}
+		return mItems.get(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return getStableItemId(getItem(position));
+	}
+
+	@Override
+	public boolean hasStableIds() {
+		return true;
+	}
+
+	@Override
+	public long getHeaderId(int position) {
+		return getItemHeaderId(getItem(position));
+	}
+
+	@Override
+	public void registerDataSetObserver(DataSetObserver observer) {
+		super.registerDataSetObserver(observer);
+		if (observer instanceof RangeDataSetObserver) {
+			mRangeObservers.add((RangeDataSetObserver) observer);
+		}
+	}
+
+	@Override
+	public void unregisterDataSetObserver(DataSetObserver observer) {
+		super.unregisterDataSetObserver(observer);
+		mRangeObservers.remove(observer);
+	}
+}
@@ -0,0 +1,167 @@
+package com.eiselts.stickylistheaders;
+
+/**
+ * The work a {@link StickyListHeadersListView} did for one frame, reported to a
+ * {@link StickyListMetricsListener}. Times are spent in the adapter of the list, counts are
+ * things the library did around it. Every metric can also be read through {@link #get(int)}
+ * with one of the {@code METRIC_} constants.
+ */
+public final class StickyListFrameMetrics {
+
+	/** Nanoseconds spent in {@code getView} of the adapter. */
+	public static final int METRIC_GET_VIEW_NANOS = 0;
+	/** Nanoseconds spent in {@code getHeaderView} of the adapter. */
+	public static final int METRIC_GET_HEADER_VIEW_NANOS = 1;
+	/** Nanoseconds spent in {@code getHeaderId} of the adapter, mostly indexing sections. */
+	public static final int METRIC_GET_HEADER_ID_NANOS = 2;
+	/** Number of times another section became sticky and the sticky header was rebound. */
+	public static final int METRIC_HEADER_SWAPS = 3;
+	/** Number of times the sticky header had to be measured again. */
+	public static final int METRIC_HEADER_MEASURES = 4;
+	/** Number of inline headers taken from the header pool. */
+	public static final int METRIC_HEADER_POOL_HITS = 5;
+	/** Number of inline headers the header pool had none for. */
+	public static final int METRIC_HEADER_POOL_MISSES = 6;
+	/** Number of row wrappers created. */
+	public static final int METRIC_WRAPPER_CREATIONS = 7;
+	/** Number of header ids taken from the header id memo. */
+	public static final int METRIC_HEADER_ID_MEMO_HITS = 8;
+	/** Number of header ids the header id memo had to look up in the adapter. */
+	public static final int METRIC_HEADER_ID_MEMO_MISSES = 9;
+	/** Number of inline headers added to a recycled row. */
+	public static final int METRIC_INLINE_HEADER_ATTACHES = 10;
+	/** Number of inline headers removed from a recycled row. */
+	public static final int METRIC_INLINE_HEADER_DETACHES = 11;
+	/** Number of rows bound lightweight while the list was flinging. */
+	public static final int METRIC_LIGHTWEIGHT_BINDS = 12;
+	/** Number of rows bound in full after a lightweight bind, once the list settled. */
+	public static final int METRIC_DEFERRED_BINDS = 13;
+	public static final int METRIC_COUNT = 14;
+
+	long mGetViewNanos;
+	long mGetHeaderViewNanos;
+	long mGetHeaderIdNanos;
+	int mHeaderSwapCount;
+	int mHeaderMeasureCount;
+	int mHeaderPoolHitCount;
+	int mHeaderPoolMissCount;
+	int mWrapperCreationCount;
+	int mHeaderIdMemoHitCount;
+	int mHeaderIdMemoMissCount;
+	int mInlineHeaderAttachCount;
+	int mInlineHeaderDetachCount;
+	int mLightweightBindCount;
+	int mDeferredBindCount;
+
+	StickyListFrameMetrics() {
+	}
+
+	public long getGetViewNanos() {
+		return mGetViewNanos;
+	}
+
+	public long getGetHeaderViewNanos() {
+		return mGetHeaderViewNanos;
+	}
+
+	public long getGetHeaderIdNanos() {
+		return mGetHeaderIdNanos;
+	}
+
+	public int getHeaderSwapCount() {
+		return mHeaderSwapCount;
+	}
+
+	public int getHeaderMeasureCount() {
+		return mHeaderMeasureCount;
+	}
+
+	public int getHeaderPoolHitCount() {
+		return mHeaderPoolHitCount;
+	}
+
+	public int getHeaderPoolMissCount() {
+		return mHeaderPoolMissCount;
+	}
+
+	public int getWrapperCreationCount() {
+		return mWrapperCreationCount;
+	}
+
+	public int getHeaderIdMemoHitCount() {
+		return mHeaderIdMemoHitCount;
+	}
+
+	public int getHeaderIdMemoMissCount() {
+		return mHeaderIdMemoMissCount;
+	}
+
+	public int getInlineHeaderAttachCount() {
+		return mInlineHeaderAttachCount;
+	}
+
+	public int getInlineHeaderDetachCount() {
+		return mInlineHeaderDetachCount;
+	}
+
+	public int getLightweightBindCount() {
+		return mLightweightBindCount;
+	}
+
+	public int getDeferredBindCount() {
+		return mDeferredBindCount;
+	}
+
+	/** Returns the metric with the given {@code METRIC_} constant. */
+	public long get(int metric) {
+		switch (metric) {
+			case METRIC_GET_VIEW_NANOS:
+				return mGetViewNanos;
+			case METRIC_GET_HEADER_VIEW_NANOS:
+				return mGetHeaderViewNanos;
+			case METRIC_GET_HEADER_ID_NANOS:
+				return mGetHeaderIdNanos;
+			case METRIC_HEADER_SWAPS:
+				return mHeaderSwapCount;
+			case METRIC_HEADER_MEASURES:
+				return mHeaderMeasureCount;
+			case METRIC_HEADER_POOL_HITS:
+				return mHeaderPoolHitCount;
+			case METRIC_HEADER_POOL_MISSES:
+				return mHeaderPoolMissCount;
+			case METRIC_WRAPPER_CREATIONS:
+				return mWrapperCreationCount;
+			case METRIC_HEADER_ID_MEMO_HITS:
+				return mHeaderIdMemoHitCount;
+			case METRIC_HEADER_ID_MEMO_MISSES:
+				return mHeaderIdMemoMissCount;
+			case METRIC_INLINE_HEADER_ATTACHES:
+				return mInlineHeaderAttachCount;
+			case METRIC_INLINE_HEADER_DETACHES:
+				return mInlineHeaderDetachCount;
+			case METRIC_LIGHTWEIGHT_BINDS:
+				return mLightweightBindCount;
+			case METRIC_DEFERRED_BINDS:
+				return mDeferredBindCount;
+			default:
+				throw new IllegalArgumentException("Unknown metric " + metric + ".");
+		}
+	}
+
+	void reset() {
+		mGetViewNanos = 0;
+		mGetHeaderViewNanos = 0;
+		mGetHeaderIdNanos = 0;
+		mHeaderSwapCount = 0;
+		mHeaderMeasureCount = 0;
+		mHeaderPoolHitCount = 0;
+		mHeaderPoolMissCount = 0;
+		mWrapperCreationCount = 0;
+		mHeaderIdMemoHitCount = 0;
+		mHeaderIdMemoMissCount = 0;
+		mInlineHeaderAttachCount = 0;
+		mInlineHeaderDetachCount = 0;
+		mLightweightBindCount = 0;
+		mDeferredBindCount = 0;
+	}
+}
@@ -35,4 +35,31 @@ public interface StickyListHeadersAdapter extends ListAdapter {
 	 * The id of the header at the specified position.
 	 */
 	long getHeaderId(int position);
+
+	/**
+	 * Get the type of View that will be created by
+	 * {@link #getHeaderView(int, View, ViewGroup)} for the specified position. Recycled
+	 * headers are only handed back to positions of the same type.
+	 *
+	 * @param position
+	 * The position of the item within the adapter's data set whose header view type we
+	 * want.
+	 * @return
+	 * An integer in the range {@code [0, getHeaderViewTypeCount())}.
+	 */
+	default int getHeaderViewType(int position) {
+		return 0;
+	}
+
+	/**
+	 * Returns the number of types of header views that will be created by
+	 * {@link #getHeaderView(int, View, ViewGroup)}. This must not change while the adapter
+	 * is set on a list.
+	 *
+	 * @return
+	 * The number of header view types, at least 1.
+	 */
+	default int getHeaderViewTypeCount() {
+		return 1;
+	}
 }
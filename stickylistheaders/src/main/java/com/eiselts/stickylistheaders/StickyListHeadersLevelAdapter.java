@@ -0,0 +1,64 @@
+package com.eiselts.stickylistheaders;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * A {@link StickyListHeadersAdapter} whose headers are nested into levels, like years, their
+ * months and the days of those. Level 0 is the outermost level. A row starting a section shows
+ * the headers of all levels whose section starts there, and the list stacks the sticky headers
+ * of all levels at its top, each pushed up by the next section of its own level.
+ *
+ * A section of a level ends wherever a section of an outer level ends, even if the header id
+ * of the level stays the same. Headers are only handed back as convert views to the level they
+ * were created for, {@link #getHeaderViewType(int)} is not used for the levels.
+ */
+public interface StickyListHeadersLevelAdapter extends StickyListHeadersAdapter {
+
+	/**
+	 * Returns the number of header levels, at least 1. This must not change while the adapter
+	 * is set on a list.
+	 */
+	int getHeaderLevelCount();
+
+	/**
+	 * Get the id of the header of {@code level} associated with the specified position.
+	 *
+	 * @param position
+	 * The position of the item within the adapter's data set whose header id we want.
+	 * @param level
+	 * The level of the header, in the range {@code [0, getHeaderLevelCount())}.
+	 * @return
+	 * The id of the header of that level at the specified position.
+	 */
+	long getHeaderId(int position, int level);
+
+	/**
+	 * Get a View that displays the header of {@code level} at the specified position.
+	 *
+	 * @param position
+	 * The position of the item within the adapter's data set of the item whose header view
+	 * we want.
+	 * @param level
+	 * The level of the header, in the range {@code [0, getHeaderLevelCount())}.
+	 * @param convertView
+	 * The old header of the same level to reuse, if possible.
+	 * @param parent
+	 * The parent that this view will eventually be attached to.
+	 * @return
+	 * A View corresponding to the header of that level at the specified position.
+	 */
+	View getHeaderView(int position, int level, View convertView, ViewGroup parent);
+
+	/** Returns the id of the innermost header. */
+	@Override
+	default long getHeaderId(int position) {
+		return getHeaderId(position, getHeaderLevelCount() - 1);
+	}
+
+	/** Returns the view of the innermost header. */
+	@Override
+	default View getHeaderView(int position, View convertView, ViewGroup parent) {
+		return getHeaderView(position, getHeaderLevelCount() - 1, convertView, parent);
+	}
+}
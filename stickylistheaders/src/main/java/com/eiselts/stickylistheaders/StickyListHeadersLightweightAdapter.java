@@ -0,0 +1,51 @@
+package com.eiselts.stickylistheaders;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * A {@link StickyListHeadersAdapter} with a cheap way to bind its rows, used while the list
+ * is flinging and most rows are only on screen for a few frames. Once the list settles the
+ * rows bound this way are bound in full with
+ * {@link #getView(int, View, ViewGroup)}, a few rows per frame, getting back the view of the
+ * lightweight bind as their convert view.
+ *
+ * The sticky header is always bound in full, as are the header stacks of a
+ * {@link StickyListHeadersLevelAdapter}.
+ */
+public interface StickyListHeadersLightweightAdapter extends StickyListHeadersAdapter {
+
+	/**
+	 * Get a View that displays a cheap version of the data at the specified position, like
+	 * its text without the images. It has to be of the item view type of the position, as it
+	 * is passed back as the convert view of the full bind.
+	 *
+	 * @param position
+	 * The position of the item within the adapter's data set of the item whose view we want.
+	 * @param convertView
+	 * The old view to reuse, if possible.
+	 * @param parent
+	 * The parent that this view will eventually be attached to.
+	 * @return
+	 * A View corresponding to the data at the specified position.
+	 */
+	View getLightweightView(int position, View convertView, ViewGroup parent);
+
+	/**
+	 * Get a View that displays a cheap version of the header at the specified position.
+	 * Defaults to the full {@link #getHeaderView(int, View, ViewGroup)}.
+	 *
+	 * @param position
+	 * The position of the item within the adapter's data set of the item whose header view
+	 * we want.
+	 * @param convertView
+	 * The old header of the same header view type to reuse, if possible.
+	 * @param parent
+	 * The parent that this view will eventually be attached to.
+	 * @return
+	 * A View corresponding to the header at the specified position.
+	 */
+	default View getLightweightHeaderView(int position, View convertView, ViewGroup parent) {
+		return getHeaderView(position, convertView, parent);
+	}
+}
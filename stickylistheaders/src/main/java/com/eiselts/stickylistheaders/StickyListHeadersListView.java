@@ -2,8 +2,8 @@ package com.eiselts.stickylistheaders;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
-import android.database.DataSetObserver;
 import android.graphics.Canvas;
 import android.graphics.drawable.Drawable;
 import android.os.Parcelable;
@@ -12,12 +12,17 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.widget.AbsListView;
 import android.widget.AbsListView.OnScrollListener;
 import android.widget.AdapterView;
 import android.widget.FrameLayout;
 import android.widget.ListView;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
 import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
 import static android.widget.ListPopupWindow.MATCH_PARENT;
 
@@ -44,24 +49,69 @@ public class StickyListHeadersListView extends FrameLayout {
     private View mHeader;
 
     /* --- Header state --- */
-    private Long mHeaderId;
+    // Kept as primitives so the scroll path never boxes, the flags stand in for null
+    private long mHeaderId;
+    private boolean mHasHeaderId;
     // used to not have to call getHeaderId() all the time
-    private Integer mHeaderPosition;
-    private Integer mHeaderOffset;
+    private int mHeaderPosition = AdapterView.INVALID_POSITION;
+    private int mHeaderOffset;
+    private boolean mHasHeaderOffset;
+    private int mHeaderViewType;
+    // The data changed since the sticky headers were bound, so they are bound again in place
+    // even if their header ids did not change
+    private boolean mIsHeaderBindingStale;
+    // Headers of rows in the list which were hidden because the sticky header covers them
+    private final ArrayList<View> mHiddenHeaders = new ArrayList<>();
+
+    /* --- Header levels --- */
+    // Sticky headers of the levels above the innermost one of a level adapter, outermost
+    // first. The sticky header is the one of the innermost level. Null for a single level.
+    private View[] mLevelHeaders;
+    // sections of their levels the headers are bound to
+    private int[] mLevelHeaderSections;
+    private int[] mLevelHeaderOffsets;
+    // the sticky header a touch went down on, which receives the gesture
+    private View mTouchedHeader;
 
     /* --- Delegates --- */
     private OnScrollListener mOnScrollListenerDelegate;
+    private AdapterView.OnItemClickListener mOnItemClickListenerDelegate;
     private WrapperAdapter mAdapter;
+    // Adapter of the wrapped list while headers are shown as rows of their own, null otherwise
+    private HeaderRowAdapter mHeaderRowAdapter;
 
     /* --- Settings --- */
     private boolean mAreHeadersSticky = true;
     private boolean mClippingToPadding = true;
     private boolean mIsDrawingListUnderStickyHeader = true;
+    private boolean mIsCachingStickyHeaderWhileFlinging = true;
+    private boolean mHasInterleavedHeaderRows = false;
+    private boolean mIsHeaderIdMemoEnabled = false;
+    private boolean mIsSplittingViewTypesByHeader = false;
     private int mPaddingLeft = 0;
     private int mPaddingTop = 0;
     private int mPaddingRight = 0;
     private int mPaddingBottom = 0;
 
+    /* --- Sticky header rendering --- */
+    private boolean mIsFlinging;
+    private boolean mIsStickyHeaderLayerApplied;
+    // layer type the sticky header had before it was cached for a fling
+    private int mStickyHeaderLayerType = LAYER_TYPE_NONE;
+    private int mStickyHeaderRedrawCount;
+    private int mStickyHeaderCachedDrawCount;
+
+    /* --- Sticky header measure cache --- */
+    // what the sticky header was last measured for by measureHeader
+    private View mMeasuredHeader;
+    private int mMeasuredHeaderWidthSize;
+    private long mMeasuredHeaderId;
+    private int mMeasuredHeaderViewType;
+    private int mMeasuredHeaderWidth;
+    private int mMeasuredHeaderHeight;
+    private int mHeaderMeasureCacheHitCount;
+    private int mHeaderMeasureCacheMissCount;
+
     /* --- Touch handling --- */
     private float mDownY;
     private boolean mHeaderOwnsTouch;
@@ -69,9 +119,36 @@ public class StickyListHeadersListView extends FrameLayout {
 
     /* --- Other --- */
     private OnHeaderClickListener mOnHeaderClickListener;
+    private final AdapterWrapperHeaderClickHandler mAdapterHeaderClickHandler =
+            new AdapterWrapperHeaderClickHandler();
+    private final StickyHeaderClickHandler mStickyHeaderClickHandler =
+            new StickyHeaderClickHandler();
+    private final LevelHeaderClickHandler mLevelHeaderClickHandler =
+            new LevelHeaderClickHandler();
+    private final ItemClickHandler mItemClickHandler = new ItemClickHandler();
     private AdapterWrapperDataSetObserver mDataSetObserver;
     private Drawable mDivider;
     private int mDividerHeight;
+    private Executor mSectionIndexExecutor;
+
+    /* --- Metrics --- */
+    private StickyListMetricsListener mMetricsListener;
+    // Null without a listener, so nothing is measured or counted then
+    private StickyListFrameMetrics mFrameMetrics;
+    // header pool counts at the end of the previous frame
+    private int mLastHeaderPoolHitCount;
+    private int mLastHeaderPoolMissCount;
+
+    /* --- Warm-up --- */
+    private int mWarmUpHeaderCount;
+    private int mWarmUpWrapperCount;
+    private Executor mHeaderWarmUpExecutor;
+    private ViewWarmer mViewWarmer;
+
+    /* --- Deferred binding --- */
+    private long mDeferredBindFrameBudgetNanos = DeferredBinder.DEFAULT_FRAME_BUDGET_NANOS;
+    // Completes the binds the adapter deferred during a fling, null without an adapter
+    private DeferredBinder mDeferredBinder;
 
     public StickyListHeadersListView(Context context) {
         this(context, null);
@@ -173,6 +250,11 @@ public class StickyListHeadersListView extends FrameLayout {
                 mIsDrawingListUnderStickyHeader = a.getBoolean(
                         R.styleable.StickyListHeadersListView_isDrawingListUnderStickyHeader,
                         true);
+                mIsCachingStickyHeaderWhileFlinging = a.getBoolean(
+                        R.styleable.StickyListHeadersListView_isCachingStickyHeaderWhileFlinging,
+                        true);
+                mHasInterleavedHeaderRows = a.getBoolean(
+                        R.styleable.StickyListHeadersListView_hasInterleavedHeaderRows, false);
             } finally {
                 a.recycle();
             }
@@ -189,6 +271,11 @@ public class StickyListHeadersListView extends FrameLayout {
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         measureHeader(mHeader);
+        if (mLevelHeaders != null) {
+            for (View levelHeader : mLevelHeaders) {
+                measureLevelHeader(levelHeader);
+            }
+        }
     }
 
     private void ensureHeaderHasCorrectLayoutParams(View header) {
@@ -206,15 +293,60 @@ public class StickyListHeadersListView extends FrameLayout {
     private void measureHeader(View header) {
         if (header != null) {
             final int width = getMeasuredWidth() - mPaddingLeft - mPaddingRight;
+
+            // Nothing about the header changed since it was last measured here. Its measured
+            // size is compared too as the FrameLayout measures all children with its own specs.
+            if (header == mMeasuredHeader && !header.isLayoutRequested()
+                    && width == mMeasuredHeaderWidthSize
+                    && mHeaderId == mMeasuredHeaderId
+                    && mHeaderViewType == mMeasuredHeaderViewType
+                    && header.getMeasuredWidth() == mMeasuredHeaderWidth
+                    && header.getMeasuredHeight() == mMeasuredHeaderHeight) {
+                mHeaderMeasureCacheHitCount++;
+                return;
+            }
+
             final int parentWidthMeasureSpec = MeasureSpec.makeMeasureSpec(
                     width, MeasureSpec.EXACTLY);
             final int parentHeightMeasureSpec = MeasureSpec.makeMeasureSpec(0,
                     MeasureSpec.UNSPECIFIED);
             measureChild(header, parentWidthMeasureSpec,
                     parentHeightMeasureSpec);
+
+            mHeaderMeasureCacheMissCount++;
+            if (mFrameMetrics != null) {
+                mFrameMetrics.mHeaderMeasureCount++;
+            }
+            mMeasuredHeader = header;
+            mMeasuredHeaderWidthSize = width;
+            mMeasuredHeaderId = mHeaderId;
+            mMeasuredHeaderViewType = mHeaderViewType;
+            mMeasuredHeaderWidth = header.getMeasuredWidth();
+            mMeasuredHeaderHeight = header.getMeasuredHeight();
+        }
+    }
+
+    private void measureLevelHeader(View header) {
+        if (header != null) {
+            final int width = getMeasuredWidth() - mPaddingLeft - mPaddingRight;
+            measureChild(header, MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+            if (mFrameMetrics != null) {
+                mFrameMetrics.mHeaderMeasureCount++;
+            }
         }
     }
 
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        // Rows and headers may look different now even though the data did not change
+        if (mAdapter != null) {
+            mAdapter.invalidateBindings();
+        }
+        mMeasuredHeader = null;
+    }
+
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         mList.layout(0, 0, mList.getMeasuredWidth(), getHeight());
@@ -224,6 +356,15 @@ public class StickyListHeadersListView extends FrameLayout {
             mHeader.layout(mPaddingLeft, headerTop, mHeader.getMeasuredWidth()
                     + mPaddingLeft, headerTop + mHeader.getMeasuredHeight());
         }
+        if (mLevelHeaders != null) {
+            for (View levelHeader : mLevelHeaders) {
+                if (levelHeader != null) {
+                    final int headerTop = ((MarginLayoutParams) levelHeader.getLayoutParams()).topMargin;
+                    levelHeader.layout(mPaddingLeft, headerTop, levelHeader.getMeasuredWidth()
+                            + mPaddingLeft, headerTop + levelHeader.getMeasuredHeight());
+                }
+            }
+        }
     }
 
     @Override
@@ -240,12 +381,16 @@ public class StickyListHeadersListView extends FrameLayout {
     // Reset values tied the header. also remove header form layout
     // This is called in response to the data set or the adapter changing
     private void clearHeader() {
+        clearLevelHeaders();
         if (mHeader != null) {
+            releaseStickyHeaderLayer();
             removeView(mHeader);
             mHeader = null;
-            mHeaderId = null;
-            mHeaderPosition = null;
-            mHeaderOffset = null;
+            mMeasuredHeader = null;
+            mHasHeaderId = false;
+            mIsHeaderBindingStale = false;
+            mHeaderPosition = AdapterView.INVALID_POSITION;
+            mHasHeaderOffset = false;
 
             // reset the top clipping length
             mList.setTopClippingLength(0);
@@ -254,11 +399,12 @@ public class StickyListHeadersListView extends FrameLayout {
     }
 
     private void updateOrClearHeader(int firstVisiblePosition) {
-        final int adapterCount = mAdapter == null ? 0 : mAdapter.getCount();
+        final int adapterCount = mAdapter == null ? 0 : getListAdapterCount();
         if (adapterCount == 0 || !mAreHeadersSticky) {
             return;
         }
 
+        mAdapter.ensureHeaderIdMemoWindow(mList.getChildCount());
         final int headerViewCount = mList.getHeaderViewsCount();
         int headerPosition = firstVisiblePosition - headerViewCount;
         if (mList.getChildCount() > 0) {
@@ -282,17 +428,29 @@ public class StickyListHeadersListView extends FrameLayout {
             return;
         }
 
+        if (mHeaderRowAdapter != null) {
+            headerPosition = mHeaderRowAdapter.getDelegatePosition(headerPosition);
+        }
         updateHeader(headerPosition);
     }
 
     private void updateHeader(int headerPosition) {
         // check if there is a new header should be sticky
-        if (mHeaderPosition == null || mHeaderPosition != headerPosition) {
+        if (mHeaderPosition != headerPosition) {
             mHeaderPosition = headerPosition;
             final long headerId = mAdapter.getHeaderId(headerPosition);
-            if (mHeaderId == null || mHeaderId != headerId) {
+            if (!mHasHeaderId || mHeaderId != headerId || mIsHeaderBindingStale) {
+                if (mFrameMetrics != null && (!mHasHeaderId || mHeaderId != headerId)) {
+                    mFrameMetrics.mHeaderSwapCount++;
+                }
                 mHeaderId = headerId;
-                final View header = mAdapter.getHeaderView(mHeaderPosition, mHeader, this);
+                mHasHeaderId = true;
+                mIsHeaderBindingStale = false;
+                // Only hand the current header back if it has the layout the new one needs
+                final int headerViewType = mAdapter.getHeaderViewType(mHeaderPosition);
+                final View convertView = headerViewType == mHeaderViewType ? mHeader : null;
+                mHeaderViewType = headerViewType;
+                final View header = mAdapter.getHeaderView(mHeaderPosition, convertView, this);
                 if (mHeader != header) {
                     if (header == null) {
                         throw new NullPointerException("header may not be null");
@@ -302,91 +460,305 @@ public class StickyListHeadersListView extends FrameLayout {
                 ensureHeaderHasCorrectLayoutParams(mHeader);
                 measureHeader(mHeader);
 
-                // Reset mHeaderOffset to null ensuring
+                // Reset mHeaderOffset ensuring
                 // that it will be set on the header and
                 // not skipped for performance reasons.
-                mHeaderOffset = null;
+                mHasHeaderOffset = false;
             }
         }
 
-        int headerOffset = stickyHeaderTop();
+        // The headers of outer levels are stacked above this one
+        final int levelHeadersBottom = updateLevelHeaders(headerPosition);
+        int headerOffset = levelHeadersBottom;
 
         // Calculate new header offset
-        // Skip looking at the first view. it never matters because it always
-        // results in a headerOffset = 0
-        for (int i = 0; i < mList.getChildCount(); i++) {
-            final View child = mList.getChildAt(i);
-            final boolean doesChildHaveHeader = child instanceof WrapperView && ((WrapperView) child).hasHeader();
-            final boolean isChildFooter = mList.containsFooterView(child);
-            if (child.getTop() >= stickyHeaderTop() && (doesChildHaveHeader || isChildFooter)) {
-                headerOffset = Math.min(child.getTop() - mHeader.getMeasuredHeight(), headerOffset);
-                break;
-            }
+        final View pushingView = findPushingView(headerPosition);
+        if (pushingView != null) {
+            headerOffset = Math.min(pushingView.getTop() - mHeader.getMeasuredHeight(), headerOffset);
         }
 
         setHeaderOffset(headerOffset);
 
         if (!mIsDrawingListUnderStickyHeader) {
-            mList.setTopClippingLength(mHeader.getMeasuredHeight() + mHeaderOffset);
+            mList.setTopClippingLength(Math.max(mHeader.getMeasuredHeight() + mHeaderOffset,
+                    levelHeadersBottom));
         }
 
         updateHeaderVisibilities();
     }
 
+    // Binds and moves the sticky headers of the outer levels, outermost first. Each one hangs
+    // below the one of the level above and is pushed up by the next section of its own level.
+    // Returns the bottom of the lowest one, or the sticky header top without outer levels.
+    private int updateLevelHeaders(int headerPosition) {
+        int levelHeadersBottom = stickyHeaderTop();
+        if (mLevelHeaders == null) {
+            return levelHeadersBottom;
+        }
+        final HeaderLevelIndex levelIndex = mAdapter.getHeaderLevelIndex();
+        if (levelIndex == null) {
+            // The index is being built in the background, only the innermost level is sticky
+            clearLevelHeaders();
+            return levelHeadersBottom;
+        }
+
+        for (int level = 0; level < mLevelHeaders.length; level++) {
+            final SectionIndex sectionIndex = levelIndex.getLevel(level);
+            final int section = sectionIndex.getSectionForPosition(headerPosition);
+            if (mLevelHeaders[level] == null || mLevelHeaderSections[level] != section) {
+                bindLevelHeader(level, section, headerPosition);
+            }
+            final View levelHeader = mLevelHeaders[level];
+            final int headerHeight = levelHeader.getMeasuredHeight();
+            int headerOffset = levelHeadersBottom;
+            if (section + 1 < sectionIndex.getSectionCount()) {
+                final View pushingView = getSectionStartChild(
+                        sectionIndex.getPositionForSection(section + 1));
+                if (pushingView != null) {
+                    headerOffset = Math.min(pushingView.getTop() - headerHeight, headerOffset);
+                }
+            }
+            if (mLevelHeaderOffsets[level] != headerOffset) {
+                mLevelHeaderOffsets[level] = headerOffset;
+                levelHeader.setTranslationY(headerOffset);
+            }
+            levelHeadersBottom = headerOffset + headerHeight;
+        }
+        return levelHeadersBottom;
+    }
+
+    private void bindLevelHeader(int level, int section, int headerPosition) {
+        final View convertView = mLevelHeaders[level];
+        final View levelHeader = mAdapter.getLevelHeaderView(headerPosition, level, convertView,
+                this);
+        if (levelHeader == null) {
+            throw new NullPointerException("header may not be null");
+        }
+        if (levelHeader != convertView) {
+            if (convertView != null) {
+                removeView(convertView);
+            }
+            mLevelHeaders[level] = levelHeader;
+            addView(levelHeader);
+            levelHeader.setOnClickListener(mLevelHeaderClickHandler);
+            levelHeader.setClickable(true);
+        }
+        mLevelHeaderSections[level] = section;
+        // The offset is set again below, even if it did not change
+        mLevelHeaderOffsets[level] = Integer.MIN_VALUE;
+        if (mFrameMetrics != null) {
+            mFrameMetrics.mHeaderSwapCount++;
+        }
+        ensureHeaderHasCorrectLayoutParams(levelHeader);
+        measureLevelHeader(levelHeader);
+    }
+
+    // Makes the sticky headers of the outer levels bind again on the next update, in place
+    private void invalidateLevelHeaders() {
+        if (mLevelHeaderSections != null) {
+            Arrays.fill(mLevelHeaderSections, -1);
+        }
+    }
+
+    // Removes the sticky headers of the outer levels, they are bound again on the next update
+    private void clearLevelHeaders() {
+        if (mLevelHeaders == null) {
+            return;
+        }
+        for (int level = 0; level < mLevelHeaders.length; level++) {
+            if (mLevelHeaders[level] != null) {
+                removeView(mLevelHeaders[level]);
+                mLevelHeaders[level] = null;
+            }
+        }
+    }
+
+    // Returns the child showing the header of the section starting at position, or null if
+    // that row is not on screen
+    private View getSectionStartChild(int position) {
+        final SectionIndex sectionIndex = mAdapter.getSectionIndex();
+        final int row = getSectionStartRow(sectionIndex,
+                sectionIndex.getSectionForPosition(position));
+        final int childIndex = row + mList.getHeaderViewsCount() - mList.getFirstVisiblePosition();
+        if (childIndex < 0 || childIndex >= mList.getChildCount()) {
+            return null;
+        }
+        return mList.getChildAt(childIndex);
+    }
+
     private void swapHeader(View newHeader) {
         if (mHeader != null) {
+            releaseStickyHeaderLayer();
             removeView(mHeader);
         }
         mHeader = newHeader;
         addView(mHeader);
-        if (mOnHeaderClickListener != null) {
-            mHeader.setOnClickListener(new OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    mOnHeaderClickListener.onHeaderClick(mHeader, mHeaderPosition, mHeaderId);
+        mHeader.setOnClickListener(mStickyHeaderClickHandler);
+        mHeader.setClickable(true);
+        updateStickyHeaderLayer();
+    }
+
+    // While flinging the sticky header is rendered into a hardware layer. Its content only
+    // changes when another section becomes sticky, every other frame just moves the layer.
+    // A rebind invalidates the header, which re-renders the layer.
+    private void updateStickyHeaderLayer() {
+        final boolean isCaching = mIsCachingStickyHeaderWhileFlinging && mIsFlinging
+                && mHeader != null;
+        if (isCaching == mIsStickyHeaderLayerApplied) {
+            return;
+        }
+        if (isCaching) {
+            mStickyHeaderLayerType = mHeader.getLayerType();
+            mHeader.setLayerType(LAYER_TYPE_HARDWARE, null);
+            mIsStickyHeaderLayerApplied = true;
+        } else {
+            releaseStickyHeaderLayer();
+        }
+    }
+
+    // While flinging a lightweight adapter binds its rows lightweight, once the list settles
+    // they are bound in full a few per frame
+    private void updateDeferredBinds() {
+        if (mAdapter == null
+                || !(mAdapter.mDelegate instanceof StickyListHeadersLightweightAdapter)) {
+            return;
+        }
+        mAdapter.setDeferringBinds(mIsFlinging);
+        if (mIsFlinging) {
+            mDeferredBinder.cancel();
+        } else {
+            mDeferredBinder.schedule();
+        }
+    }
+
+    // Gives the sticky header back the layer type it had before it was cached
+    private void releaseStickyHeaderLayer() {
+        if (mIsStickyHeaderLayerApplied) {
+            mHeader.setLayerType(mStickyHeaderLayerType, null);
+            mIsStickyHeaderLayerApplied = false;
+        }
+    }
+
+    // Returns the first child at or below the top of the sticky header which has a header
+    // or is a footer, that is the view which pushes the sticky header up. Null if there is none.
+    private View findPushingView(int headerPosition) {
+        final int top = stickyHeaderTop();
+        final SectionIndex sectionIndex = mAdapter.getSectionIndex();
+        if (sectionIndex == null) {
+            // The index is still being built, look for the view among the children
+            for (int i = 0; i < mList.getChildCount(); i++) {
+                final View child = mList.getChildAt(i);
+                final boolean doesChildHaveHeader = child instanceof WrapperView && ((WrapperView) child).hasHeader();
+                if (child.getTop() >= top && (doesChildHaveHeader || mList.containsFooterView(child))) {
+                    return child;
                 }
-            });
+            }
+            return null;
         }
-        mHeader.setClickable(true);
+
+        // Rows with a header are the section starts, so only those need to be looked at,
+        // beginning with the start of the current section. Footers follow the last row.
+        final int childCount = mList.getChildCount();
+        final int firstChildPosition = mList.getFirstVisiblePosition() - mList.getHeaderViewsCount();
+        final int sectionCount = sectionIndex.getSectionCount();
+        for (int section = sectionIndex.getSectionForPosition(headerPosition); section < sectionCount; section++) {
+            final int childIndex = getSectionStartRow(sectionIndex, section) - firstChildPosition;
+            if (childIndex >= childCount) {
+                return null;
+            }
+            if (childIndex >= 0) {
+                final View child = mList.getChildAt(childIndex);
+                if (child.getTop() >= top) {
+                    return child;
+                }
+            }
+        }
+        for (int i = Math.max(getListAdapterCount() - firstChildPosition, 0); i < childCount; i++) {
+            final View child = mList.getChildAt(i);
+            if (child.getTop() >= top && mList.containsFooterView(child)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    // Returns the position in the wrapped list adapter of the row which shows the header of
+    // the section
+    private int getSectionStartRow(SectionIndex sectionIndex, int section) {
+        final int sectionStart = sectionIndex.getPositionForSection(section);
+        return mHeaderRowAdapter == null ? sectionStart : sectionStart + section;
+    }
+
+    private int getListAdapterCount() {
+        return mHeaderRowAdapter == null ? mAdapter.getCount() : mHeaderRowAdapter.getCount();
     }
 
     // hides the headers in the list under the sticky header.
     // Makes sure the other ones are showing
     private void updateHeaderVisibilities() {
-        int top = stickyHeaderTop();
-        int childCount = mList.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-
-            // ensure child is a wrapper view
-            View child = mList.getChildAt(i);
-            if (!(child instanceof WrapperView)) {
-                continue;
+        final int top = stickyHeaderTop();
+
+        // Show the headers hidden earlier which are no longer under the sticky header
+        for (int i = mHiddenHeaders.size() - 1; i >= 0; i--) {
+            final View hiddenHeader = mHiddenHeaders.get(i);
+            if (!isUnderStickyHeader(hiddenHeader, top)) {
+                hiddenHeader.setVisibility(View.VISIBLE);
+                mHiddenHeaders.remove(i);
             }
+        }
 
-            // ensure wrapper view child has a header
-            WrapperView wrapperViewChild = (WrapperView) child;
-            if (!wrapperViewChild.hasHeader()) {
-                continue;
+        // The children are ordered by their top, so only the first few can be above the top
+        final int childCount = mList.getChildCount();
+        final int firstChildPosition = mList.getFirstVisiblePosition() - mList.getHeaderViewsCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = mList.getChildAt(i);
+            if (child.getTop() >= top) {
+                break;
             }
 
-            // update header views visibility
-            View childHeader = wrapperViewChild.mHeader;
-            if (wrapperViewChild.getTop() < top) {
-                if (childHeader.getVisibility() != View.INVISIBLE) {
-                    childHeader.setVisibility(View.INVISIBLE);
+            final View childHeader;
+            if (mHeaderRowAdapter != null) {
+                // ensure child is a header row
+                final int row = firstChildPosition + i;
+                if (row < 0 || row >= mHeaderRowAdapter.getCount()
+                        || !mHeaderRowAdapter.isHeaderRow(row)) {
+                    continue;
                 }
+                childHeader = child;
             } else {
-                if (childHeader.getVisibility() != View.VISIBLE) {
-                    childHeader.setVisibility(View.VISIBLE);
+                // ensure child is a wrapper view with a header
+                if (!(child instanceof WrapperView) || !((WrapperView) child).hasHeader()) {
+                    continue;
                 }
+                childHeader = ((WrapperView) child).mHeader;
+            }
+            if (childHeader.getVisibility() != View.INVISIBLE) {
+                childHeader.setVisibility(View.INVISIBLE);
+                mHiddenHeaders.add(childHeader);
             }
         }
     }
 
+    // Returns true if the header is shown in a row of the list which starts above the top
+    private boolean isUnderStickyHeader(View header, int top) {
+        final ViewParent parent = header.getParent();
+        if (parent == mList) {
+            // a header row, those are only ever rebound to other header rows
+            return header.getTop() < top;
+        }
+        if (!(parent instanceof WrapperView)) {
+            return false;
+        }
+        final WrapperView wrapperView = (WrapperView) parent;
+        return wrapperView.mHeader == header && wrapperView.getParent() == mList
+                && wrapperView.getTop() < top;
+    }
+
     // Wrapper around setting the header offset in different ways depending on the API version
     private void setHeaderOffset(int offset) {
-        if (mHeaderOffset == null || mHeaderOffset != offset) {
+        if (!mHasHeaderOffset || mHeaderOffset != offset) {
             mHeaderOffset = offset;
+            mHasHeaderOffset = true;
             mHeader.setTranslationY(mHeaderOffset);
         }
     }
@@ -396,26 +768,34 @@ public class StickyListHeadersListView extends FrameLayout {
         int action = ev.getAction() & MotionEvent.ACTION_MASK;
         if (action == MotionEvent.ACTION_DOWN) {
             mDownY = ev.getY();
-            mHeaderOwnsTouch = mHeader != null && mDownY <= mHeader.getHeight() + mHeaderOffset;
+            mTouchedHeader = findStickyHeaderAt(mDownY);
+            mHeaderOwnsTouch = mTouchedHeader != null;
         }
 
         boolean handled;
         if (mHeaderOwnsTouch) {
-            if (mHeader != null && Math.abs(mDownY - ev.getY()) <= mTouchSlop) {
-                handled = mHeader.dispatchTouchEvent(ev);
+            // The header may have been removed since the touch went down
+            final boolean isTouchedHeaderAttached = mTouchedHeader.getParent() == this;
+            if (isTouchedHeaderAttached && Math.abs(mDownY - ev.getY()) <= mTouchSlop) {
+                handled = mTouchedHeader.dispatchTouchEvent(ev);
             } else {
-                if (mHeader != null) {
-                    MotionEvent cancelEvent = MotionEvent.obtain(ev);
-                    cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
-                    mHeader.dispatchTouchEvent(cancelEvent);
-                    cancelEvent.recycle();
+                // The event is temporarily rewritten instead of obtaining copies, it is
+                // restored before being handed back to the caller
+                final int originalAction = ev.getAction();
+                if (isTouchedHeaderAttached) {
+                    ev.setAction(MotionEvent.ACTION_CANCEL);
+                    mTouchedHeader.dispatchTouchEvent(ev);
                 }
 
-                MotionEvent downEvent = MotionEvent.obtain(ev.getDownTime(), ev.getEventTime(), ev.getAction(), ev.getX(), mDownY, ev.getMetaState());
-                downEvent.setAction(MotionEvent.ACTION_DOWN);
-                handled = mList.dispatchTouchEvent(downEvent);
-                downEvent.recycle();
+                // Replay the down at its original position so the list starts tracking there
+                final float deltaY = mDownY - ev.getY();
+                ev.offsetLocation(0, deltaY);
+                ev.setAction(MotionEvent.ACTION_DOWN);
+                handled = mList.dispatchTouchEvent(ev);
+                ev.setAction(originalAction);
+                ev.offsetLocation(0, -deltaY);
                 mHeaderOwnsTouch = false;
+                mTouchedHeader = null;
             }
         } else {
             handled = mList.dispatchTouchEvent(ev);
@@ -424,11 +804,71 @@ public class StickyListHeadersListView extends FrameLayout {
         return handled;
     }
 
-    private class AdapterWrapperDataSetObserver extends DataSetObserver {
+    // Returns the sticky header shown at y, the headers of outer levels are drawn on top of
+    // those of inner ones. Null if y is below all of them.
+    private View findStickyHeaderAt(float y) {
+        if (mHeader == null) {
+            return null;
+        }
+        if (mLevelHeaders != null) {
+            for (int level = 0; level < mLevelHeaders.length; level++) {
+                final View levelHeader = mLevelHeaders[level];
+                if (levelHeader != null
+                        && y <= levelHeader.getHeight() + mLevelHeaderOffsets[level]) {
+                    return levelHeader;
+                }
+            }
+        }
+        return y <= mHeader.getHeight() + mHeaderOffset ? mHeader : null;
+    }
+
+    private class AdapterWrapperDataSetObserver extends RangeDataSetObserver {
+
+        private boolean mHasPendingRangeChange;
+
+        @Override
+        void onItemRangeReplaced(int positionStart, int removedCount, int insertedCount) {
+            mHasPendingRangeChange = true;
+            for (int i = 0; i < mList.getChildCount(); i++) {
+                final View child = mList.getChildAt(i);
+                if (child instanceof WrapperView) {
+                    mAdapter.retainBoundView((WrapperView) child, positionStart, removedCount,
+                            insertedCount);
+                }
+            }
+
+            if (mHeaderPosition != AdapterView.INVALID_POSITION) {
+                // Positions replaced in place got new content, so the sticky header has to be
+                // rebound even if its header id stays the same. It keeps its view either way.
+                final int replacedCount = Math.min(removedCount, insertedCount);
+                if (mHeaderPosition >= positionStart
+                        && mHeaderPosition < positionStart + replacedCount) {
+                    mIsHeaderBindingStale = true;
+                }
+                // The sticky position is resolved again after the list has been laid out
+                mHeaderPosition = AdapterView.INVALID_POSITION;
+            }
+        }
 
+        // Only marks the sticky headers for a rebind, so any number of changes before the
+        // next layout cost a single rebind. The headers keep their views, which are handed
+        // back to the adapter as convert views.
         @Override
         public void onChanged() {
-            clearHeader();
+            if (mAdapter.getCount() == 0) {
+                mHasPendingRangeChange = false;
+                clearHeader();
+                return;
+            }
+            if (mHasPendingRangeChange) {
+                mHasPendingRangeChange = false;
+                return;
+            }
+            if (mHeader != null) {
+                mIsHeaderBindingStale = true;
+                mHeaderPosition = AdapterView.INVALID_POSITION;
+            }
+            invalidateLevelHeaders();
         }
 
         @Override
@@ -455,6 +895,10 @@ public class StickyListHeadersListView extends FrameLayout {
             if (mOnScrollListenerDelegate != null) {
                 mOnScrollListenerDelegate.onScrollStateChanged(view, scrollState);
             }
+
+            mIsFlinging = scrollState == SCROLL_STATE_FLING;
+            updateStickyHeaderLayer();
+            updateDeferredBinds();
         }
     }
 
@@ -465,19 +909,45 @@ public class StickyListHeadersListView extends FrameLayout {
             // onScroll is not called often at all before froyo
             // therefore we need to update the header here as well.
             if (mHeader != null) {
-                if (mClippingToPadding) {
-                    canvas.save();
-                    canvas.clipRect(0, mPaddingTop, getRight(), getBottom());
-                    drawChild(canvas, mHeader, 0);
-                    canvas.restore();
+                // Nothing has to be rendered again if neither a rebind nor an invalidation
+                // touched the header since it was last drawn, only its offset changed
+                if (canvas.isHardwareAccelerated() && !mHeader.isDirty()) {
+                    mStickyHeaderCachedDrawCount++;
                 } else {
-                    drawChild(canvas, mHeader, 0);
+                    mStickyHeaderRedrawCount++;
+                }
+
+                drawStickyHeader(canvas, mHeader, mHeaderOffset);
+                // Outer levels on top, the inner ones slide under them when pushed
+                if (mLevelHeaders != null) {
+                    for (int level = mLevelHeaders.length - 1; level >= 0; level--) {
+                        if (mLevelHeaders[level] != null) {
+                            drawStickyHeader(canvas, mLevelHeaders[level],
+                                    mLevelHeaderOffsets[level]);
+                        }
+                    }
                 }
             }
+
+            if (mFrameMetrics != null) {
+                reportFrameMetrics();
+            }
         }
 
     }
 
+    private void drawStickyHeader(Canvas canvas, View header, int headerOffset) {
+        // The header only has to be clipped while it is pushed into the padding
+        if (mClippingToPadding && header.getTop() + headerOffset < mPaddingTop) {
+            canvas.save();
+            canvas.clipRect(0, mPaddingTop, getRight(), getBottom());
+            drawChild(canvas, header, 0);
+            canvas.restore();
+        } else {
+            drawChild(canvas, header, 0);
+        }
+    }
+
     private class AdapterWrapperHeaderClickHandler implements WrapperAdapter.OnHeaderClickListener {
 
         @Override
@@ -486,6 +956,43 @@ public class StickyListHeadersListView extends FrameLayout {
         }
     }
 
+    // Reports the positions the list would have without header rows
+    private class ItemClickHandler implements AdapterView.OnItemClickListener {
+
+        @Override
+        public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+            mOnItemClickListenerDelegate.onItemClick(parent, view,
+                    mList.getPositionWithoutHeaderRows(position), id);
+        }
+    }
+
+    private class StickyHeaderClickHandler implements OnClickListener {
+
+        @Override
+        public void onClick(View v) {
+            if (mOnHeaderClickListener != null) {
+                mOnHeaderClickListener.onHeaderClick(mHeader, mHeaderPosition, mHeaderId);
+            }
+        }
+    }
+
+    private class LevelHeaderClickHandler implements OnClickListener {
+
+        @Override
+        public void onClick(View v) {
+            if (mOnHeaderClickListener == null || mLevelHeaders == null) {
+                return;
+            }
+            for (int level = 0; level < mLevelHeaders.length; level++) {
+                if (mLevelHeaders[level] == v) {
+                    mOnHeaderClickListener.onHeaderClick(v, mHeaderPosition,
+                            mAdapter.getHeaderId(mHeaderPosition, level));
+                    return;
+                }
+            }
+        }
+    }
+
     private int stickyHeaderTop() {
         int stickyHeaderTopOffset = 0;
         return stickyHeaderTopOffset + (mClippingToPadding ? mPaddingTop : 0);
@@ -495,16 +1002,10 @@ public class StickyListHeadersListView extends FrameLayout {
         mOnHeaderClickListener = listener;
         if (mAdapter != null) {
             if (mOnHeaderClickListener != null) {
-                mAdapter.setOnHeaderClickListener(new AdapterWrapperHeaderClickHandler());
+                mAdapter.setOnHeaderClickListener(mAdapterHeaderClickHandler);
 
                 if (mHeader != null) {
-                    mHeader.setOnClickListener(new OnClickListener() {
-                        @Override
-                        public void onClick(View v) {
-                            mOnHeaderClickListener.onHeaderClick(mHeader, mHeaderPosition,
-                                    mHeaderId);
-                        }
-                    });
+                    mHeader.setOnClickListener(mStickyHeaderClickHandler);
                 }
             } else {
                 mAdapter.setOnHeaderClickListener(null);
@@ -512,6 +1013,332 @@ public class StickyListHeadersListView extends FrameLayout {
         }
     }
 
+    /**
+     * Sets the executor the header ids of the adapter are indexed on after
+     * {@link #setAdapter(StickyListHeadersAdapter)} and every data set change, so large
+     * adapters do not stall the first frame. Until the index is ready header ids are looked
+     * up on demand. Pass {@code null} to index on the main thread, which is the default.
+     *
+     * {@link StickyListHeadersAdapter#getHeaderId(int)} is called on the executor at any
+     * time, also while the data set is changed on the main thread. It must then not corrupt
+     * the data set or block, but may return a wrong id or throw a {@link RuntimeException}.
+     * The index is dropped in that case, as it is whenever the data set changed while it was
+     * built, and header ids are looked up on demand until the next change. Adapters backed
+     * by a {@code List} which is modified and notified on the main thread meet this, cursors
+     * do not, which is why {@link StickyCursorAdapter} indexes them itself.
+     */
+    public void setSectionIndexExecutor(Executor executor) {
+        mSectionIndexExecutor = executor;
+        if (mAdapter != null && mHeaderRowAdapter == null) {
+            mAdapter.setSectionIndexExecutor(executor);
+        }
+    }
+
+    /**
+     * Sets whether header ids are memoized for the rows around the visible ones instead of
+     * being indexed for all rows of the adapter. Every header id is then looked up in the
+     * adapter once per data set change, but a change no longer costs a pass over the whole
+     * adapter, which suits large adapters that change often. The index is still built when
+     * it is needed to jump to a section, for interleaved header rows and for
+     * {@link StickyListHeadersLevelAdapter}s, which ignore this setting. Takes precedence over
+     * {@link #setSectionIndexExecutor(Executor)}. Disabled by default.
+     */
+    public void setHeaderIdMemoEnabled(boolean isEnabled) {
+        mIsHeaderIdMemoEnabled = isEnabled;
+        if (mAdapter != null) {
+            mAdapter.setHeaderIdMemoEnabled(isEnabled);
+        }
+    }
+
+    public boolean isHeaderIdMemoEnabled() {
+        return mIsHeaderIdMemoEnabled;
+    }
+
+    /**
+     * Sets whether headers are shown as rows of their own in front of every section instead
+     * of inside a wrapper around the first row of the section. Rows are then the plain views
+     * of the adapter, which saves a level of the view hierarchy and its measure and layout
+     * pass for every row. Positions and ids reported to the listeners stay those of the
+     * adapter. Dividers are drawn by the list itself, which also keeps their space next to
+     * header rows. The section index is built on the main thread in this mode, regardless
+     * of {@link #setSectionIndexExecutor(Executor)}. Disabled by default, see also the
+     * {@code hasInterleavedHeaderRows} attribute.
+     */
+    public void setInterleavedHeaderRows(boolean hasInterleavedHeaderRows) {
+        if (mHasInterleavedHeaderRows == hasInterleavedHeaderRows) {
+            return;
+        }
+        mHasInterleavedHeaderRows = hasInterleavedHeaderRows;
+        if (mAdapter != null && mAdapter.mDelegate != null) {
+            setListAdapter();
+            clearHeader();
+            startWarmUp();
+        }
+    }
+
+    public boolean hasInterleavedHeaderRows() {
+        return mHasInterleavedHeaderRows;
+    }
+
+    /**
+     * Sets whether rows starting a section get view types of their own, twice the view types
+     * of the adapter. The list then recycles rows with a header into rows with a header and
+     * rows without one into rows without one, instead of adding and removing the header on
+     * almost every bind. Has no effect with interleaved header rows. Disabled by default,
+     * the churn shows up as {@link StickyListFrameMetrics#METRIC_INLINE_HEADER_ATTACHES} and
+     * {@link StickyListFrameMetrics#METRIC_INLINE_HEADER_DETACHES}.
+     */
+    public void setViewTypesSplitByHeader(boolean isSplitting) {
+        if (mIsSplittingViewTypesByHeader == isSplitting) {
+            return;
+        }
+        mIsSplittingViewTypesByHeader = isSplitting;
+        if (mAdapter != null && mAdapter.mDelegate != null && mHeaderRowAdapter == null) {
+            // The list only reads the view type count when its adapter is set
+            setListAdapter();
+            clearHeader();
+        }
+    }
+
+    public boolean areViewTypesSplitByHeader() {
+        return mIsSplittingViewTypesByHeader;
+    }
+
+    /**
+     * Sets how many nanoseconds of a frame may be spent binding rows in full once the list
+     * settled after a fling, for adapters which are a
+     * {@link StickyListHeadersLightweightAdapter}. While flinging their rows are bound
+     * lightweight. At least one row is bound per frame. Defaults to 4 milliseconds.
+     */
+    public void setDeferredBindFrameBudget(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Frame budget must not be negative.");
+        }
+        mDeferredBindFrameBudgetNanos = nanos;
+        if (mDeferredBinder != null) {
+            mDeferredBinder.setFrameBudget(nanos);
+        }
+    }
+
+    public long getDeferredBindFrameBudget() {
+        return mDeferredBindFrameBudgetNanos;
+    }
+
+    /**
+     * Sets the listener which gets the work done for every frame of the list, like the time
+     * spent in the adapter. Without a listener, the default, none of it is measured. Pass a
+     * {@link StickyListMetricsAggregator} to get percentiles.
+     */
+    public void setMetricsListener(StickyListMetricsListener listener) {
+        mMetricsListener = listener;
+        mFrameMetrics = listener == null ? null : new StickyListFrameMetrics();
+        if (mAdapter != null) {
+            mAdapter.mFrameMetrics = mFrameMetrics;
+            mLastHeaderPoolHitCount = mAdapter.getHeaderPool().getHitCount();
+            mLastHeaderPoolMissCount = mAdapter.getHeaderPool().getMissCount();
+        }
+    }
+
+    private void reportFrameMetrics() {
+        if (mAdapter != null) {
+            final HeaderPool<View> headerPool = mAdapter.getHeaderPool();
+            mFrameMetrics.mHeaderPoolHitCount = headerPool.getHitCount() - mLastHeaderPoolHitCount;
+            mFrameMetrics.mHeaderPoolMissCount = headerPool.getMissCount() - mLastHeaderPoolMissCount;
+            mLastHeaderPoolHitCount = headerPool.getHitCount();
+            mLastHeaderPoolMissCount = headerPool.getMissCount();
+        }
+        mMetricsListener.onFrameMetrics(mFrameMetrics);
+        mFrameMetrics.reset();
+    }
+
+    /**
+     * Sets how many headers and rows are created ahead of time whenever an adapter is set.
+     * They are created one per pass while the main thread is idle after the first layout,
+     * for the sections and rows right below the screen, so the first scroll binds them
+     * instead of inflating. Headers go to the header pool, which keeps at most four per
+     * header view type. Nothing is created with interleaved header rows. Both are 0 by
+     * default, which disables the warm-up.
+     */
+    public void setWarmUpCounts(int headerCount, int rowCount) {
+        if (headerCount < 0 || rowCount < 0) {
+            throw new IllegalArgumentException("Warm-up counts must not be negative.");
+        }
+        mWarmUpHeaderCount = headerCount;
+        mWarmUpWrapperCount = rowCount;
+    }
+
+    /**
+     * Sets the executor warm-up headers are created on, for header layouts which can be
+     * inflated off the main thread. {@link StickyListHeadersAdapter#getHeaderView(int, View,
+     * ViewGroup)} is then called on it with a {@code null} convert view and has to be safe to
+     * call from it while the data set is not changing. Pass {@code null} to create them on the
+     * main thread, which is the default.
+     */
+    public void setHeaderWarmUpExecutor(Executor executor) {
+        mHeaderWarmUpExecutor = executor;
+    }
+
+    private void startWarmUp() {
+        if (mViewWarmer != null) {
+            mViewWarmer.cancel();
+            mViewWarmer = null;
+        }
+        if (mAdapter != null && mAdapter.mDelegate != null && mHeaderRowAdapter == null
+                && (mWarmUpHeaderCount > 0 || mWarmUpWrapperCount > 0)) {
+            mViewWarmer = new ViewWarmer(mAdapter, mList, mWarmUpHeaderCount,
+                    mWarmUpWrapperCount, mHeaderWarmUpExecutor);
+            mViewWarmer.start();
+        }
+    }
+
+    private void cancelDeferredBinds() {
+        if (mDeferredBinder != null) {
+            mDeferredBinder.cancel();
+            mDeferredBinder = null;
+        }
+    }
+
+    // Hands the adapter to the wrapped list, either directly or with its headers as rows
+    private void setListAdapter() {
+        if (mHeaderRowAdapter != null) {
+            mHeaderRowAdapter.release();
+            mHeaderRowAdapter = null;
+        }
+        if (mHasInterleavedHeaderRows) {
+            // Rows are plain views, so the list draws the dividers. Header rows are disabled,
+            // which keeps dividers away from them just like from inline headers.
+            mAdapter.setSectionIndexExecutor(null);
+            mAdapter.setSplittingViewTypesByHeader(false);
+            mHeaderRowAdapter = new HeaderRowAdapter(mAdapter);
+            mList.setDivider(mDivider);
+            mList.setDividerHeight(mDividerHeight);
+            mList.setAdapter(mHeaderRowAdapter);
+        } else {
+            mAdapter.setSectionIndexExecutor(mSectionIndexExecutor);
+            mAdapter.setSplittingViewTypesByHeader(mIsSplittingViewTypesByHeader);
+            mList.setDivider(null);
+            mList.setDividerHeight(0);
+            mList.setAdapter(mAdapter);
+        }
+        mList.setHeaderRowAdapter(mHeaderRowAdapter);
+    }
+
+    /**
+     * Sets whether the sticky header is rendered into a hardware layer while the list is
+     * flinging, so frames in which only its offset changes do not draw it again. Enabled by
+     * default, see also the {@code isCachingStickyHeaderWhileFlinging} attribute.
+     */
+    public void setCachingStickyHeaderWhileFlinging(boolean isCaching) {
+        mIsCachingStickyHeaderWhileFlinging = isCaching;
+        updateStickyHeaderLayer();
+    }
+
+    public boolean isCachingStickyHeaderWhileFlinging() {
+        return mIsCachingStickyHeaderWhileFlinging;
+    }
+
+    /**
+     * Returns how often the sticky header was drawn with its content rendered again, either
+     * because it was rebound or invalidated or because the canvas is not hardware accelerated.
+     */
+    public int getStickyHeaderRedrawCount() {
+        return mStickyHeaderRedrawCount;
+    }
+
+    /**
+     * Returns how often the sticky header was drawn from its cached rendering, only moved to
+     * its current offset.
+     */
+    public int getStickyHeaderCachedDrawCount() {
+        return mStickyHeaderCachedDrawCount;
+    }
+
+    public void resetStickyHeaderDrawCounts() {
+        mStickyHeaderRedrawCount = 0;
+        mStickyHeaderCachedDrawCount = 0;
+    }
+
+    /**
+     * Returns how often measuring the sticky header was skipped because neither its header
+     * id, its width nor the configuration changed since it was last measured, and nothing in
+     * it requested a layout.
+     */
+    public int getHeaderMeasureCacheHitCount() {
+        return mHeaderMeasureCacheHitCount;
+    }
+
+    /** Returns how often the sticky header had to be measured again. */
+    public int getHeaderMeasureCacheMissCount() {
+        return mHeaderMeasureCacheMissCount;
+    }
+
+    public void resetHeaderMeasureCacheCounts() {
+        mHeaderMeasureCacheHitCount = 0;
+        mHeaderMeasureCacheMissCount = 0;
+    }
+
+    /**
+     * Returns the section {@code position} of the adapter is in, sections being runs of
+     * adjacent positions with the same header id. Resolved through the section index in
+     * logarithmic time. Positions out of range are clamped to the first or last position,
+     * like {@link android.widget.SectionIndexer} does. Returns
+     * {@link AdapterView#INVALID_POSITION} without an adapter or rows.
+     */
+    public int getSectionForPosition(int position) {
+        if (mAdapter == null || mAdapter.mDelegate == null) {
+            return AdapterView.INVALID_POSITION;
+        }
+        return mAdapter.getHeaderSectionForPosition(position);
+    }
+
+    /**
+     * Returns the first position of the adapter in {@code section}, see
+     * {@link #getSectionForPosition(int)}. Sections out of range are clamped to the first or
+     * last section.
+     */
+    public int getPositionForSection(int section) {
+        if (mAdapter == null || mAdapter.mDelegate == null) {
+            return AdapterView.INVALID_POSITION;
+        }
+        return mAdapter.getPositionForHeaderSection(section);
+    }
+
+    /**
+     * Selects the first row of the first section with {@code headerId} and shows it at the
+     * top of the list. Resolved in logarithmic time, does nothing if there is no such section.
+     */
+    public void setSelectionToHeader(long headerId) {
+        final int listPosition = getListPositionForHeaderId(headerId);
+        if (listPosition != AdapterView.INVALID_POSITION) {
+            mList.setSelectionFromTop(listPosition, 0);
+        }
+    }
+
+    /**
+     * Smoothly scrolls to the first section with {@code headerId} until its first row is at
+     * the top of the list, see {@link #setSelectionToHeader(long)}.
+     */
+    public void smoothScrollToHeader(long headerId) {
+        final int listPosition = getListPositionForHeaderId(headerId);
+        if (listPosition != AdapterView.INVALID_POSITION) {
+            mList.smoothScrollToPositionFromTop(listPosition, 0);
+        }
+    }
+
+    // Returns the position in the wrapped list of the row showing the header of the first
+    // section with the header id
+    private int getListPositionForHeaderId(long headerId) {
+        if (mAdapter == null || mAdapter.mDelegate == null) {
+            return AdapterView.INVALID_POSITION;
+        }
+        final SectionIndex sectionIndex = mAdapter.requireSectionIndex();
+        final int section = sectionIndex.getSectionForHeaderId(headerId);
+        if (section == -1) {
+            return AdapterView.INVALID_POSITION;
+        }
+        return mList.getHeaderViewsCount() + getSectionStartRow(sectionIndex, section);
+    }
+
     /* ---------- ListView delegate methods ---------- */
 
     public void setAdapter(StickyListHeadersAdapter adapter) {
@@ -519,26 +1346,87 @@ public class StickyListHeadersListView extends FrameLayout {
             if (mAdapter != null) {
                 mAdapter.mDelegate = null;
             }
+            if (mHeaderRowAdapter != null) {
+                mHeaderRowAdapter.release();
+                mHeaderRowAdapter = null;
+            }
             mList.setAdapter(null);
+            mList.setHeaderRowAdapter(null);
             clearHeader();
+            cancelDeferredBinds();
+            mLevelHeaders = null;
+            startWarmUp();
             return;
         }
 
         if (mAdapter != null) {
             mAdapter.unregisterDataSetObserver(mDataSetObserver);
         }
+        cancelDeferredBinds();
 
         mAdapter = new WrapperAdapter(getContext(), adapter);
+        mAdapter.mFrameMetrics = mFrameMetrics;
+        mDeferredBinder = new DeferredBinder(mAdapter, mList, mDeferredBindFrameBudgetNanos);
+        mAdapter.mDeferredBinder = mDeferredBinder;
+        mAdapter.setHeaderIdMemoEnabled(mIsHeaderIdMemoEnabled);
+        mLastHeaderPoolHitCount = 0;
+        mLastHeaderPoolMissCount = 0;
         mDataSetObserver = new AdapterWrapperDataSetObserver();
         mAdapter.registerDataSetObserver(mDataSetObserver);
 
         mAdapter.setOnHeaderClickListener(mOnHeaderClickListener != null ?
-                new AdapterWrapperHeaderClickHandler() : null);
+                mAdapterHeaderClickHandler : null);
 
         mAdapter.setDivider(mDivider, mDividerHeight);
 
-        mList.setAdapter(mAdapter);
+        setListAdapter();
         clearHeader();
+        final int outerLevelCount = mAdapter.getHeaderLevelCount() - 1;
+        mLevelHeaders = outerLevelCount > 0 ? new View[outerLevelCount] : null;
+        mLevelHeaderSections = outerLevelCount > 0 ? new int[outerLevelCount] : null;
+        mLevelHeaderOffsets = outerLevelCount > 0 ? new int[outerLevelCount] : null;
+        startWarmUp();
+    }
+
+    /**
+     * Notifies the list that the items in {@code [positionStart, positionStart + itemCount)}
+     * changed. Unlike {@link android.widget.BaseAdapter#notifyDataSetChanged()} this keeps
+     * the sticky header bound and only rebinds the affected rows.
+     */
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        if (mAdapter != null) {
+            mAdapter.notifyItemRangeChanged(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * Notifies the list that {@code itemCount} items were inserted at {@code positionStart}.
+     * Rows keep their binding if they are above the insertion or the adapter has stable ids.
+     */
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        if (mAdapter != null) {
+            mAdapter.notifyItemRangeInserted(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * Notifies the list that {@code itemCount} items were removed starting at
+     * {@code positionStart}. Rows keep their binding if they are above the removal or the
+     * adapter has stable ids.
+     */
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        if (mAdapter != null) {
+            mAdapter.notifyItemRangeRemoved(positionStart, itemCount);
+        }
+    }
+
+    /**
+     * Notifies the list that the item at {@code fromPosition} moved to {@code toPosition}.
+     */
+    public void notifyItemMoved(int fromPosition, int toPosition) {
+        if (mAdapter != null) {
+            mAdapter.notifyItemMoved(fromPosition, toPosition);
+        }
     }
 
     public void setOnScrollListener(OnScrollListener onScrollListener) {
@@ -688,7 +1576,12 @@ public class StickyListHeadersListView extends FrameLayout {
         });
     }
 
+    WrapperListView getWrappedList() {
+        return mList;
+    }
+
     public void setOnItemClickListener(AdapterView.OnItemClickListener onItemClickListener) {
-        mList.setOnItemClickListener(onItemClickListener);
+        mOnItemClickListenerDelegate = onItemClickListener;
+        mList.setOnItemClickListener(onItemClickListener == null ? null : mItemClickHandler);
     }
 }
@@ -0,0 +1,214 @@
+package com.eiselts.stickylistheaders;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
+
+/**
+ * A {@link RecyclerView.Adapter} which lets an existing {@link StickyListHeadersAdapter} be
+ * shown in a {@link RecyclerView}. Rows are bound exactly like in
+ * {@link StickyListHeadersListView}, wrapped in a {@link WrapperView} which holds the inline
+ * header of the first row of every section. Use it together with
+ * {@link StickyHeadersItemDecoration} to get a sticky header.
+ *
+ * Changes can be reported either through the delegate or through the usual
+ * {@code notifyItem*} methods of this adapter, the section index is kept in sync with both.
+ */
+public class StickyListHeadersRecyclerAdapter
+		extends RecyclerView.Adapter<StickyListHeadersRecyclerAdapter.ViewHolder> {
+
+	public static class ViewHolder extends RecyclerView.ViewHolder {
+
+		ViewHolder(WrapperView itemView) {
+			super(itemView);
+		}
+
+		/** Returns the view created by the delegate adapter for this row. */
+		public View getItem() {
+			return ((WrapperView) itemView).getItem();
+		}
+	}
+
+	private final WrapperAdapter mAdapter;
+	private RecyclerView mRecyclerView;
+	// true while a change of the delegate is forwarded to the RecyclerView
+	private boolean mIsForwardingChange;
+
+	public StickyListHeadersRecyclerAdapter(Context context, StickyListHeadersAdapter delegate) {
+		mAdapter = new WrapperAdapter(context, delegate) {
+			@Override
+			int getBoundPosition(WrapperView wv) {
+				// Rows are not rebound when rows before them are inserted or removed, so the
+				// position they were bound to may be out of date
+				return mRecyclerView != null
+						? mRecyclerView.getChildAdapterPosition(wv) : RecyclerView.NO_POSITION;
+			}
+		};
+		mAdapter.registerDataSetObserver(new RangeDataSetObserver() {
+			private boolean mHasPendingRangeChange;
+
+			@Override
+			void onItemRangeReplaced(int positionStart, int removedCount, int insertedCount) {
+				mHasPendingRangeChange = true;
+				mIsForwardingChange = true;
+				final int replacedCount = Math.min(removedCount, insertedCount);
+				if (replacedCount > 0) {
+					notifyItemRangeChanged(positionStart, replacedCount);
+				}
+				if (removedCount > replacedCount) {
+					notifyItemRangeRemoved(positionStart + replacedCount,
+							removedCount - replacedCount);
+				} else if (insertedCount > replacedCount) {
+					notifyItemRangeInserted(positionStart + replacedCount,
+							insertedCount - replacedCount);
+				}
+				rebindRowAfter(positionStart, insertedCount);
+				mIsForwardingChange = false;
+			}
+
+			@Override
+			public void onChanged() {
+				if (mHasPendingRangeChange) {
+					mHasPendingRangeChange = false;
+					return;
+				}
+				forwardDataSetChanged();
+			}
+
+			@Override
+			public void onInvalidated() {
+				mHasPendingRangeChange = false;
+				forwardDataSetChanged();
+			}
+		});
+		registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+			@Override
+			public void onChanged() {
+				if (!mIsForwardingChange) {
+					mAdapter.invalidateSectionIndex();
+				}
+			}
+
+			@Override
+			public void onItemRangeChanged(int positionStart, int itemCount) {
+				if (!mIsForwardingChange) {
+					mAdapter.applyRangeChange(positionStart, itemCount, itemCount);
+					rebindRowAfter(positionStart, itemCount);
+				}
+			}
+
+			@Override
+			public void onItemRangeInserted(int positionStart, int itemCount) {
+				if (!mIsForwardingChange) {
+					mAdapter.applyRangeChange(positionStart, 0, itemCount);
+					rebindRowAfter(positionStart, itemCount);
+				}
+			}
+
+			@Override
+			public void onItemRangeRemoved(int positionStart, int itemCount) {
+				if (!mIsForwardingChange) {
+					mAdapter.applyRangeChange(positionStart, itemCount, 0);
+					rebindRowAfter(positionStart, 0);
+				}
+			}
+
+			@Override
+			public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+				if (!mIsForwardingChange) {
+					mAdapter.applyRangeChange(fromPosition, itemCount, 0);
+					rebindRowAfter(fromPosition, 0);
+					mAdapter.applyRangeChange(toPosition, 0, itemCount);
+					rebindRowAfter(toPosition, itemCount);
+				}
+			}
+		});
+		setHasStableIds(delegate.hasStableIds());
+	}
+
+	/**
+	 * Rebinds the row following {@code insertedCount} rows changed at {@code positionStart}.
+	 * Whether it starts a section depends on the row before it, so it may have to gain or
+	 * lose its inline header although it did not change itself. RecyclerView only rebinds
+	 * the rows it was told about.
+	 */
+	private void rebindRowAfter(int positionStart, int insertedCount) {
+		final int position = positionStart + insertedCount;
+		if (position >= getItemCount()) {
+			return;
+		}
+		final boolean wasForwardingChange = mIsForwardingChange;
+		mIsForwardingChange = true;
+		notifyItemChanged(position);
+		mIsForwardingChange = wasForwardingChange;
+	}
+
+	private void forwardDataSetChanged() {
+		mIsForwardingChange = true;
+		notifyDataSetChanged();
+		mIsForwardingChange = false;
+	}
+
+	@Override
+	public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+		mRecyclerView = recyclerView;
+	}
+
+	@Override
+	public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+		mRecyclerView = null;
+	}
+
+	@NonNull
+	@Override
+	public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+		WrapperView wv = new WrapperView(parent.getContext());
+		wv.setLayoutParams(new RecyclerView.LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+		return new ViewHolder(wv);
+	}
+
+	@Override
+	public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+		mAdapter.getView(position, holder.itemView, mRecyclerView);
+	}
+
+	@Override
+	public int getItemCount() {
+		return mAdapter.getCount();
+	}
+
+	@Override
+	public int getItemViewType(int position) {
+		return mAdapter.getItemViewType(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return mAdapter.getItemId(position);
+	}
+
+	/**
+	 * Sets the executor the header ids of the delegate are indexed on, see
+	 * {@link StickyListHeadersListView#setSectionIndexExecutor(Executor)}.
+	 */
+	public void setSectionIndexExecutor(Executor executor) {
+		mAdapter.setSectionIndexExecutor(executor);
+	}
+
+	public void setDivider(Drawable divider, int dividerHeight) {
+		mAdapter.setDivider(divider, dividerHeight);
+	}
+
+	WrapperAdapter getWrapperAdapter() {
+		return mAdapter;
+	}
+}
@@ -0,0 +1,99 @@
+package com.eiselts.stickylistheaders;
+
+/**
+ * A {@link StickyListMetricsListener} which aggregates the frames of a list into histograms,
+ * so percentiles of every metric can be read and shipped at any time. Recording a frame
+ * never allocates.
+ *
+ * Values below 16 are counted exactly, larger ones in buckets of an eighth of their power of
+ * two, so percentiles are at most 12.5% above the actual value.
+ */
+public class StickyListMetricsAggregator implements StickyListMetricsListener {
+
+	private static final int EXACT_BUCKETS = 16;
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// powers of two from 2^4 to 2^62
+	private static final int BUCKET_COUNT = EXACT_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+	private final long[][] mHistograms =
+			new long[StickyListFrameMetrics.METRIC_COUNT][BUCKET_COUNT];
+	private final long[] mMaxValues = new long[StickyListFrameMetrics.METRIC_COUNT];
+	private long mFrameCount;
+
+	@Override
+	public void onFrameMetrics(StickyListFrameMetrics metrics) {
+		for (int metric = 0; metric < StickyListFrameMetrics.METRIC_COUNT; metric++) {
+			final long value = Math.max(metrics.get(metric), 0);
+			mHistograms[metric][getBucket(value)]++;
+			mMaxValues[metric] = Math.max(mMaxValues[metric], value);
+		}
+		mFrameCount++;
+	}
+
+	public long getFrameCount() {
+		return mFrameCount;
+	}
+
+	/**
+	 * Returns the value of {@code metric}, one of the {@code METRIC_} constants of
+	 * {@link StickyListFrameMetrics}, which {@code percentile} percent of the frames did not
+	 * exceed. Returns 0 if no frame was recorded.
+	 */
+	public long getPercentile(int metric, double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile " + percentile
+					+ " is out of range [0, 100].");
+		}
+		if (mFrameCount == 0) {
+			return 0;
+		}
+		final long[] histogram = mHistograms[metric];
+		final long rank = Math.max((long) Math.ceil(percentile / 100 * mFrameCount), 1);
+		long frameCount = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			frameCount += histogram[bucket];
+			if (frameCount >= rank) {
+				return Math.min(getBucketUpperBound(bucket), mMaxValues[metric]);
+			}
+		}
+		return mMaxValues[metric];
+	}
+
+	/** Returns the largest value of {@code metric} recorded for a frame. */
+	public long getMax(int metric) {
+		return mMaxValues[metric];
+	}
+
+	public void reset() {
+		for (long[] histogram : mHistograms) {
+			for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+				histogram[bucket] = 0;
+			}
+		}
+		for (int metric = 0; metric < mMaxValues.length; metric++) {
+			mMaxValues[metric] = 0;
+		}
+		mFrameCount = 0;
+	}
+
+	static int getBucket(long value) {
+		if (value < EXACT_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return EXACT_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+	}
+
+	static long getBucketUpperBound(int bucket) {
+		if (bucket < EXACT_BUCKETS) {
+			return bucket;
+		}
+		final int exponent = 4 + (bucket - EXACT_BUCKETS) / SUB_BUCKETS;
+		final long subBucket = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+		final long nextLowerBound = (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+		// The last bucket ends at the largest long
+		return nextLowerBound < 0 ? Long.MAX_VALUE : nextLowerBound - 1;
+	}
+}
@@ -0,0 +1,15 @@
+package com.eiselts.stickylistheaders;
+
+/**
+ * Receives what a {@link StickyListHeadersListView} spent on every frame it draws, see
+ * {@link StickyListHeadersListView#setMetricsListener(StickyListMetricsListener)}.
+ * {@link StickyListMetricsAggregator} aggregates frames into percentiles.
+ */
+public interface StickyListMetricsListener {
+
+	/**
+	 * Called on the main thread after every frame of the list with the work done since the
+	 * previous frame. The metrics object is reused for the next frame, copy what you keep.
+	 */
+	void onFrameMetrics(StickyListFrameMetrics metrics);
+}
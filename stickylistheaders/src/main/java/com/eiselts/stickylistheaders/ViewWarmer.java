@@ -0,0 +1,200 @@
+package com.eiselts.stickylistheaders;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ListView;
+
+import java.util.concurrent.Executor;
+
+import static android.view.View.MeasureSpec.EXACTLY;
+import static android.view.View.MeasureSpec.UNSPECIFIED;
+
+/**
+ * Creates headers and wrappers ahead of the first scroll while the main thread is idle after
+ * an adapter was set, so the first frames of a scroll bind views instead of inflating them.
+ * One view is created per idle pass, the next pass is triggered by posting a message so
+ * frames are still drawn in between. Headers of the sections below the screen seed the
+ * header pool of the adapter, wrappers are bound and measured for the rows below the screen
+ * and handed out by {@link WrapperAdapter#getView(int, View, ViewGroup)} when the list has
+ * no view to convert.
+ *
+ * Headers can be created on an executor instead, they are measured and pooled once they are
+ * handed back to the main thread. Everything is dropped once the data set changes.
+ */
+final class ViewWarmer implements MessageQueue.IdleHandler {
+
+	private final WrapperAdapter mAdapter;
+	private final ListView mList;
+	private final int mHeaderCount;
+	private final int mWrapperCount;
+	private final Executor mHeaderExecutor;
+	private final int mDataVersion;
+	private final Handler mHandler = new Handler(Looper.myLooper());
+	private final Runnable mNextPass = new Runnable() {
+		@Override
+		public void run() {
+			if (isCurrent()) {
+				Looper.myQueue().addIdleHandler(ViewWarmer.this);
+			}
+		}
+	};
+
+	// first row below the screen, -1 until the list has been laid out
+	private int mFirstPosition = -1;
+	private int mCreatedHeaderCount;
+	private int mCreatedWrapperCount;
+	private boolean mIsCancelled;
+
+	ViewWarmer(WrapperAdapter adapter, ListView list, int headerCount, int wrapperCount,
+			Executor headerExecutor) {
+		this.mAdapter = adapter;
+		this.mList = list;
+		this.mHeaderCount = headerCount;
+		this.mWrapperCount = wrapperCount;
+		this.mHeaderExecutor = headerExecutor;
+		this.mDataVersion = adapter.getDataVersion();
+	}
+
+	/** Starts warming up on the message queue of the calling thread. */
+	void start() {
+		Looper.myQueue().addIdleHandler(this);
+	}
+
+	void cancel() {
+		mIsCancelled = true;
+		mHandler.removeCallbacks(mNextPass);
+		Looper.myQueue().removeIdleHandler(this);
+	}
+
+	private boolean isCurrent() {
+		return !mIsCancelled && mAdapter.mDelegate != null
+				&& mAdapter.getDataVersion() == mDataVersion;
+	}
+
+	@Override
+	public boolean queueIdle() {
+		if (!isCurrent()) {
+			return false;
+		}
+		if (mFirstPosition == -1 && (mList.getChildCount() == 0 || mList.getWidth() == 0)) {
+			// Nothing is known about the screen before the first layout, which wakes the
+			// queue up again
+			return true;
+		}
+		if (createNextView()) {
+			mHandler.post(mNextPass);
+		}
+		return false;
+	}
+
+	// Creates one view, returns true if there are more to create
+	private boolean createNextView() {
+		if (mFirstPosition == -1) {
+			mFirstPosition = Math.max(mList.getLastVisiblePosition()
+					- mList.getHeaderViewsCount() + 1, 0);
+		}
+		// Headers wait while the section index is built in the background or not kept at
+		// all, it is not built here. Rows are created meanwhile, once they are all created
+		// the headers are skipped
+		final SectionIndex sectionIndex = mCreatedHeaderCount < mHeaderCount
+				? mAdapter.getSectionIndex() : null;
+		if (sectionIndex != null && mHeaderExecutor != null) {
+			createHeadersAsync(sectionIndex);
+			mCreatedHeaderCount = mHeaderCount;
+		} else if (sectionIndex != null) {
+			final int position = getHeaderPosition(sectionIndex, mCreatedHeaderCount++);
+			if (position >= 0 && offerHeader(position,
+					mAdapter.getHeaderView(position, null, mList))) {
+				return true;
+			}
+			// Out of sections or the pool is full
+			mCreatedHeaderCount = mHeaderCount;
+		}
+		final int count = mAdapter.getCount();
+		if (mCreatedWrapperCount < mWrapperCount) {
+			// Rows furthest down are created first, so the pool hands out the nearest first
+			final int position = mFirstPosition + mWrapperCount - 1 - mCreatedWrapperCount++;
+			if (position < count) {
+				final WrapperView wv = mAdapter.createWarmWrapper(position, mList);
+				measure(wv);
+				wv.layout(0, 0, wv.getMeasuredWidth(), wv.getMeasuredHeight());
+				mAdapter.offerWarmWrapper(position, wv, mWrapperCount);
+			}
+			return mCreatedWrapperCount < mWrapperCount || mCreatedHeaderCount < mHeaderCount;
+		}
+		return false;
+	}
+
+	// Returns the first position of the index-th section below the screen, -1 if there is none
+	private int getHeaderPosition(SectionIndex sectionIndex, int index) {
+		if (mFirstPosition >= mAdapter.getCount()) {
+			return -1;
+		}
+		int section = sectionIndex.getSectionForPosition(mFirstPosition);
+		if (sectionIndex.getPositionForSection(section) < mFirstPosition) {
+			section++;
+		}
+		section += index;
+		return section < sectionIndex.getSectionCount()
+				? sectionIndex.getPositionForSection(section) : -1;
+	}
+
+	private void createHeadersAsync(SectionIndex sectionIndex) {
+		final int[] positions = new int[mHeaderCount];
+		int positionCount = 0;
+		for (int i = 0; i < mHeaderCount; i++) {
+			final int position = getHeaderPosition(sectionIndex, i);
+			if (position < 0) {
+				break;
+			}
+			positions[positionCount++] = position;
+		}
+		final int headerCount = positionCount;
+		final StickyListHeadersAdapter delegate = mAdapter.mDelegate;
+		mHeaderExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < headerCount; i++) {
+					final int position = positions[i];
+					final View header = delegate.getHeaderView(position, null, mList);
+					mHandler.post(new Runnable() {
+						@Override
+						public void run() {
+							if (isCurrent()) {
+								offerHeader(position, header);
+							}
+						}
+					});
+				}
+			}
+		});
+	}
+
+	private boolean offerHeader(int position, View header) {
+		if (header == null) {
+			throw new NullPointerException("Header view must not be null.");
+		}
+		measure(header);
+		return mAdapter.offerWarmHeader(position, header);
+	}
+
+	// Measures the view the way the list and the wrappers will, so the measurement can be
+	// reused when the view is shown
+	private void measure(View view) {
+		final int width = mList.getWidth() - mList.getPaddingLeft() - mList.getPaddingRight();
+		final ViewGroup.LayoutParams params = view.getLayoutParams();
+		final int heightMeasureSpec;
+		if (view instanceof WrapperView) {
+			heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(mList.getMeasuredHeight(),
+					UNSPECIFIED);
+		} else if (params != null && params.height > 0) {
+			heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(params.height, EXACTLY);
+		} else {
+			heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(0, UNSPECIFIED);
+		}
+		view.measure(View.MeasureSpec.makeMeasureSpec(width, EXACTLY), heightMeasureSpec);
+	}
+}
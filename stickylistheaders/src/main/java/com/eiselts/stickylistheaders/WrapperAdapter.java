@@ -1,17 +1,22 @@
 package com.eiselts.stickylistheaders;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import androidx.annotation.NonNull;
 import android.content.Context;
 import android.database.DataSetObserver;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.ListAdapter;
+import android.widget.SectionIndexer;
 
 /**
  * A {@link ListAdapter} which wraps a {@link StickyListHeadersAdapter} and
@@ -23,40 +28,602 @@ import android.widget.ListAdapter;
  *
  * @author Jake Wharton (jakewharton@gmail.com)
  */
-class WrapperAdapter extends BaseAdapter implements StickyListHeadersAdapter {
+class WrapperAdapter extends BaseAdapter implements StickyListHeadersAdapter, SectionIndexer {
 
 	interface OnHeaderClickListener {
 		void onHeaderClick(View header, int itemPosition, long headerId);
 	}
 
+	static final int NO_VERSION = -1;
+
 	private final Context mContext;
-	private final List<View> mHeaderCache = new LinkedList<>();
+	private final HeaderPool<View> mHeaderCache;
+	// Number of header levels of the delegate, 1 unless it is a level adapter
+	private final int mHeaderLevelCount;
+	// Headers of the levels shown in header stacks, keyed by level. Null for a single level.
+	private final HeaderPool<View> mLevelHeaderCache;
+	// Wrappers created ahead of time by a ViewWarmer, keyed by item view type
+	private HeaderPool<WrapperView> mWrapperCache;
 
 	StickyListHeadersAdapter mDelegate;
 
+	private final SectionIndex.HeaderIdSource mDelegateHeaderIds = new SectionIndex.HeaderIdSource() {
+		@Override
+		public long getHeaderId(int position) {
+			return mDelegate.getHeaderId(position);
+		}
+	};
+	private final HeaderLevelIndex.LevelHeaderIdSource mDelegateLevelHeaderIds =
+			new HeaderLevelIndex.LevelHeaderIdSource() {
+				@Override
+				public long getHeaderId(int position, int level) {
+					return ((StickyListHeadersLevelAdapter) mDelegate).getHeaderId(position, level);
+				}
+			};
+	// Built lazily, dropped whenever the delegate reports a data set change
+	private SectionIndex mSectionIndex;
+	// Index of all header levels, its innermost level is the section index while both are
+	// current
+	private HeaderLevelIndex mHeaderLevelIndex;
+	private Executor mSectionIndexExecutor;
+	// Header ids of the delegate around the visible rows, null unless enabled. Replaces the
+	// section index on the scroll path.
+	private HeaderIdMemo mHeaderIdMemo;
+	// Whether rows starting a section have view types of their own
+	private boolean mIsSplittingViewTypesByHeader;
+	// Whether rows are bound lightweight, only while the list flings a lightweight delegate
+	private boolean mIsDeferringBinds;
+	// Completes the deferred binds once the list settles, null unless set by the list
+	DeferredBinder mDeferredBinder;
+	private int mPendingSectionIndexVersion = NO_VERSION;
+	private Handler mMainHandler;
+	// Bumped on every change of the data set, full or ranged
+	private int mDataVersion;
+	private final List<RangeDataSetObserver> mRangeObservers = new ArrayList<>();
+	// Metrics of the current frame, null unless a metrics listener is attached to the list
+	StickyListFrameMetrics mFrameMetrics;
+
 	private OnHeaderClickListener mOnHeaderClickListener;
 
+	// Shared by all headers, the clicked position is that of the WrapperView the header is
+	// currently attached to
+	private final OnClickListener mHeaderClickHandler = new OnClickListener() {
+		@Override
+		public void onClick(View v) {
+			if (v.getParent() instanceof WrapperView) {
+				final int position = getBoundPosition((WrapperView) v.getParent());
+				if (position >= 0) {
+					performHeaderClick(v, position);
+				}
+			}
+		}
+	};
+
+	// Shared by all headers in header stacks, reports the header id of the clicked level
+	private final OnClickListener mLevelHeaderClickHandler = new OnClickListener() {
+		@Override
+		public void onClick(View v) {
+			if (!(v.getParent() instanceof HeaderStackView)) {
+				return;
+			}
+			final HeaderStackView stack = (HeaderStackView) v.getParent();
+			if (stack.getParent() instanceof WrapperView && mOnHeaderClickListener != null) {
+				final int position = getBoundPosition((WrapperView) stack.getParent());
+				if (position >= 0) {
+					mOnHeaderClickListener.onHeaderClick(v, position,
+							getHeaderId(position, stack.getLevel(v)));
+				}
+			}
+		}
+	};
+
 	private Drawable mDivider;
 	private int mDividerHeight;
 
 	WrapperAdapter(Context context, StickyListHeadersAdapter delegate) {
 		this.mContext = context;
 		this.mDelegate = delegate;
-		DataSetObserver mDataSetObserver = new DataSetObserver() {
+		this.mHeaderCache = new HeaderPool<>(delegate.getHeaderViewTypeCount(),
+				HeaderPool.DEFAULT_CAPACITY_PER_TYPE);
+		this.mHeaderLevelCount = delegate instanceof StickyListHeadersLevelAdapter
+				? ((StickyListHeadersLevelAdapter) delegate).getHeaderLevelCount() : 1;
+		if (mHeaderLevelCount < 1) {
+			throw new IllegalArgumentException("Header level count must be at least 1.");
+		}
+		this.mLevelHeaderCache = mHeaderLevelCount > 1
+				? new HeaderPool<View>(mHeaderLevelCount, HeaderPool.DEFAULT_CAPACITY_PER_TYPE)
+				: null;
+		// Delegates in this package can describe their changes as ranges, like the list does
+		DataSetObserver mDataSetObserver = new RangeDataSetObserver() {
+
+			private boolean mHasPendingRangeChange;
+
+			@Override
+			void onItemRangeReplaced(int positionStart, int removedCount, int insertedCount) {
+				mHasPendingRangeChange = true;
+				mDataVersion++;
+				replaceRange(positionStart, removedCount, insertedCount);
+			}
+
 			@Override
 			public void onInvalidated() {
+				mHasPendingRangeChange = false;
+				mSectionIndex = null;
+				mDataVersion++;
 				mHeaderCache.clear();
+				if (mLevelHeaderCache != null) {
+					mLevelHeaderCache.clear();
+				}
+				if (mWrapperCache != null) {
+					mWrapperCache.clear();
+				}
 				WrapperAdapter.super.notifyDataSetInvalidated();
 			}
 
 			@Override
 			public void onChanged() {
+				if (mHasPendingRangeChange) {
+					mHasPendingRangeChange = false;
+					WrapperAdapter.super.notifyDataSetChanged();
+					return;
+				}
+				mSectionIndex = null;
+				mDataVersion++;
 				WrapperAdapter.super.notifyDataSetChanged();
 			}
 		};
 		delegate.registerDataSetObserver(mDataSetObserver);
 	}
 
+	/**
+	 * Returns the section index of the delegate, or {@code null} while it is being built in
+	 * the background. Without a section index executor the index is built right away if the
+	 * data set changed since it was last requested. With the header id memo the index is
+	 * not built here at all, only kept while it is current. Delegates with a section index of
+	 * their own are never indexed here.
+	 */
+	SectionIndex getSectionIndex() {
+		if (isDelegateSectionIndexed()) {
+			mSectionIndex = ((SectionIndexedAdapter) mDelegate).requireSectionIndex();
+			return mSectionIndex;
+		}
+		final int count = mDelegate.getCount();
+		if (mSectionIndex == null || mSectionIndex.getCount() != count) {
+			if (mHeaderIdMemo != null) {
+				mSectionIndex = null;
+			} else if (mSectionIndexExecutor == null) {
+				mSectionIndex = buildSectionIndex(count);
+			} else {
+				mSectionIndex = null;
+				buildSectionIndexAsync(count);
+			}
+		}
+		return mSectionIndex;
+	}
+
+	/** Returns the section index of the delegate, building it right away if needed. */
+	SectionIndex requireSectionIndex() {
+		if (isDelegateSectionIndexed()) {
+			mSectionIndex = ((SectionIndexedAdapter) mDelegate).requireSectionIndex();
+			return mSectionIndex;
+		}
+		final int count = mDelegate.getCount();
+		if (mSectionIndex == null || mSectionIndex.getCount() != count) {
+			mSectionIndex = buildSectionIndex(count);
+		}
+		return mSectionIndex;
+	}
+
+	private boolean isDelegateSectionIndexed() {
+		return mDelegate instanceof SectionIndexedAdapter && mHeaderLevelCount == 1;
+	}
+
+	private SectionIndex buildSectionIndex(int count) {
+		final StickyListFrameMetrics metrics = mFrameMetrics;
+		final long start = metrics != null ? System.nanoTime() : 0;
+		final SectionIndex sectionIndex;
+		if (mHeaderLevelCount > 1) {
+			mHeaderLevelIndex = HeaderLevelIndex.build(mDelegateLevelHeaderIds,
+					mHeaderLevelCount, count);
+			sectionIndex = mHeaderLevelIndex.getInnermostLevel();
+		} else {
+			sectionIndex = SectionIndex.build(mDelegateHeaderIds, count);
+		}
+		if (metrics != null) {
+			metrics.mGetHeaderIdNanos += System.nanoTime() - start;
+		}
+		return sectionIndex;
+	}
+
+	/**
+	 * Returns the index of all header levels of the delegate, or {@code null} if it has a
+	 * single level or the index is being built in the background.
+	 */
+	HeaderLevelIndex getHeaderLevelIndex() {
+		if (mHeaderLevelCount == 1) {
+			return null;
+		}
+		final SectionIndex sectionIndex = getSectionIndex();
+		if (sectionIndex == null || mHeaderLevelIndex == null
+				|| mHeaderLevelIndex.getInnermostLevel() != sectionIndex) {
+			return null;
+		}
+		return mHeaderLevelIndex;
+	}
+
+	int getHeaderLevelCount() {
+		return mHeaderLevelCount;
+	}
+
+	/** Returns the id of the header of {@code level} at {@code position}. */
+	long getHeaderId(int position, int level) {
+		if (level == mHeaderLevelCount - 1) {
+			return getHeaderId(position);
+		}
+		final HeaderLevelIndex levelIndex = getHeaderLevelIndex();
+		if (levelIndex != null) {
+			return levelIndex.getLevel(level).getHeaderId(position);
+		}
+		return ((StickyListHeadersLevelAdapter) mDelegate).getHeaderId(position, level);
+	}
+
+	/**
+	 * Returns the outermost level with a section starting at {@code position}, or the level
+	 * count if none starts there.
+	 */
+	int getOutermostLevelStartingAt(int position) {
+		final HeaderLevelIndex levelIndex = getHeaderLevelIndex();
+		if (levelIndex != null) {
+			return levelIndex.getOutermostLevelStartingAt(position);
+		}
+		// The index is still being built, compare the header ids with the previous position
+		if (position == 0) {
+			return 0;
+		}
+		final StickyListHeadersLevelAdapter delegate = (StickyListHeadersLevelAdapter) mDelegate;
+		for (int level = 0; level < mHeaderLevelCount; level++) {
+			if (delegate.getHeaderId(position, level) != delegate.getHeaderId(position - 1, level)) {
+				return level;
+			}
+		}
+		return mHeaderLevelCount;
+	}
+
+	/**
+	 * Builds the section index on the section index executor. Until it is published back on
+	 * the main thread header ids are looked up in the delegate on demand. The delegate is read
+	 * while the main thread may change it, so the result is dropped if the data set changed
+	 * in the meantime, and a build which fails leaves the lookups on demand until the next
+	 * change.
+	 */
+	private void buildSectionIndexAsync(final int count) {
+		if (mPendingSectionIndexVersion == mDataVersion) {
+			return;
+		}
+		final int version = mDataVersion;
+		final StickyListHeadersAdapter delegate = mDelegate;
+		mPendingSectionIndexVersion = version;
+		if (mMainHandler == null) {
+			mMainHandler = new Handler(Looper.getMainLooper());
+		}
+		mSectionIndexExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				HeaderLevelIndex levelIndex = null;
+				SectionIndex sectionIndex = null;
+				try {
+					if (mHeaderLevelCount > 1) {
+						levelIndex = HeaderLevelIndex.build(
+								new HeaderLevelIndex.LevelHeaderIdSource() {
+									@Override
+									public long getHeaderId(int position, int level) {
+										return ((StickyListHeadersLevelAdapter) delegate)
+												.getHeaderId(position, level);
+									}
+								}, mHeaderLevelCount, count);
+						sectionIndex = levelIndex.getInnermostLevel();
+					} else {
+						sectionIndex = SectionIndex.build(new SectionIndex.HeaderIdSource() {
+							@Override
+							public long getHeaderId(int position) {
+								return delegate.getHeaderId(position);
+							}
+						}, count);
+					}
+				} catch (RuntimeException e) {
+					// Most likely the data set shrank on the main thread while it was read
+				}
+				final HeaderLevelIndex builtLevelIndex = levelIndex;
+				final SectionIndex builtSectionIndex = sectionIndex;
+				mMainHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (builtSectionIndex == null) {
+							// Left pending, so this version is not built again
+							return;
+						}
+						if (mPendingSectionIndexVersion == version) {
+							mPendingSectionIndexVersion = NO_VERSION;
+						}
+						// Publishing needs no layout pass, the index answers exactly what the
+						// on demand lookups answered
+						if (mDataVersion == version && mDelegate == delegate) {
+							mSectionIndex = builtSectionIndex;
+							mHeaderLevelIndex = builtLevelIndex;
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Sets the executor the section index is built on. Pass {@code null} to build it on the
+	 * calling thread whenever it is needed.
+	 */
+	void setSectionIndexExecutor(Executor executor) {
+		mSectionIndexExecutor = executor;
+		mPendingSectionIndexVersion = NO_VERSION;
+	}
+
+	/**
+	 * Sets whether header ids of the delegate are memoized for the rows around the visible
+	 * ones instead of being indexed for all rows. The index is then only built for the
+	 * section APIs. Level adapters always build it.
+	 */
+	void setHeaderIdMemoEnabled(boolean isEnabled) {
+		if (isEnabled == (mHeaderIdMemo != null) || mHeaderLevelCount > 1) {
+			return;
+		}
+		mHeaderIdMemo = isEnabled ? new HeaderIdMemo() : null;
+	}
+
+	/** Makes the header id memo, if enabled, hold {@code rowCount} adjacent rows. */
+	void ensureHeaderIdMemoWindow(int rowCount) {
+		if (mHeaderIdMemo != null) {
+			mHeaderIdMemo.ensureWindow(rowCount);
+		}
+	}
+
+	/** Returns {@code true} if {@code position} is the first position of its section. */
+	boolean isSectionStart(int position) {
+		final SectionIndex sectionIndex = getSectionIndex();
+		if (sectionIndex != null) {
+			return sectionIndex.isSectionStart(position);
+		}
+		return position == 0 || getDelegateHeaderId(position) != getDelegateHeaderId(position - 1);
+	}
+
+	/**
+	 * Returns the sections of the delegate if it is a {@link SectionIndexer} itself. Otherwise
+	 * the sections are those of the section index, with empty labels as header ids are no
+	 * text, which still lets the fast scroller move from section to section.
+	 */
+	@Override
+	public Object[] getSections() {
+		if (mDelegate instanceof SectionIndexer) {
+			return ((SectionIndexer) mDelegate).getSections();
+		}
+		final Object[] sections = new Object[requireSectionIndex().getSectionCount()];
+		Arrays.fill(sections, "");
+		return sections;
+	}
+
+	@Override
+	public int getPositionForSection(int section) {
+		if (mDelegate instanceof SectionIndexer) {
+			return ((SectionIndexer) mDelegate).getPositionForSection(section);
+		}
+		return Math.max(getPositionForHeaderSection(section), 0);
+	}
+
+	@Override
+	public int getSectionForPosition(int position) {
+		if (mDelegate instanceof SectionIndexer) {
+			return ((SectionIndexer) mDelegate).getSectionForPosition(position);
+		}
+		return Math.max(getHeaderSectionForPosition(position), 0);
+	}
+
+	/**
+	 * Returns the first position of {@code section} of the section index, or -1 if there are no
+	 * sections. Out of range sections are clamped, the fast scroller may hold on to sections
+	 * from before a data set change.
+	 */
+	int getPositionForHeaderSection(int section) {
+		final SectionIndex sectionIndex = requireSectionIndex();
+		if (sectionIndex.getSectionCount() == 0) {
+			return -1;
+		}
+		return sectionIndex.getPositionForSection(
+				Math.max(0, Math.min(section, sectionIndex.getSectionCount() - 1)));
+	}
+
+	/**
+	 * Returns the section of the section index {@code position} is in, or -1 if there are no
+	 * rows. Out of range positions are clamped like sections are.
+	 */
+	int getHeaderSectionForPosition(int position) {
+		final SectionIndex sectionIndex = requireSectionIndex();
+		if (sectionIndex.getCount() == 0) {
+			return -1;
+		}
+		return sectionIndex.getSectionForPosition(
+				Math.max(0, Math.min(position, sectionIndex.getCount() - 1)));
+	}
+
+	void notifyItemRangeChanged(int positionStart, int itemCount) {
+		notifyItemRangeReplaced(positionStart, itemCount, itemCount);
+	}
+
+	void notifyItemRangeInserted(int positionStart, int itemCount) {
+		notifyItemRangeReplaced(positionStart, 0, itemCount);
+	}
+
+	void notifyItemRangeRemoved(int positionStart, int itemCount) {
+		notifyItemRangeReplaced(positionStart, itemCount, 0);
+	}
+
+	void notifyItemMoved(int fromPosition, int toPosition) {
+		mDataVersion++;
+		replaceRange(fromPosition, 1, 0);
+		replaceRange(toPosition, 0, 1);
+		super.notifyDataSetChanged();
+	}
+
+	/**
+	 * Notifies observers that {@code removedCount} positions starting at
+	 * {@code positionStart} were replaced by {@code insertedCount} new ones. The section
+	 * index is updated in place and rows outside of the range keep their binding.
+	 */
+	void notifyItemRangeReplaced(int positionStart, int removedCount, int insertedCount) {
+		mDataVersion++;
+		replaceRange(positionStart, removedCount, insertedCount);
+		super.notifyDataSetChanged();
+	}
+
+	private void replaceRange(int positionStart, int removedCount, int insertedCount) {
+		updateSectionIndex(positionStart, removedCount, insertedCount);
+		for (int i = mRangeObservers.size() - 1; i >= 0; i--) {
+			mRangeObservers.get(i).onItemRangeReplaced(positionStart, removedCount, insertedCount);
+		}
+	}
+
+	/**
+	 * Applies a range change which has already been announced through another path, without
+	 * notifying anyone. Rows bound before it will be rebound.
+	 */
+	void applyRangeChange(int positionStart, int removedCount, int insertedCount) {
+		mDataVersion++;
+		updateSectionIndex(positionStart, removedCount, insertedCount);
+	}
+
+	private void updateSectionIndex(int positionStart, int removedCount, int insertedCount) {
+		if (isDelegateSectionIndexed()) {
+			// The index belongs to the delegate, which updates it on its own
+			mSectionIndex = null;
+		} else if (mSectionIndex != null) {
+			final StickyListFrameMetrics metrics = mFrameMetrics;
+			final long start = metrics != null ? System.nanoTime() : 0;
+			if (mHeaderLevelIndex != null && mHeaderLevelIndex.getInnermostLevel() == mSectionIndex) {
+				mHeaderLevelIndex.replaceRange(positionStart, removedCount, insertedCount,
+						mDelegateLevelHeaderIds);
+			} else {
+				mSectionIndex.replaceRange(positionStart, removedCount, insertedCount,
+						mDelegateHeaderIds);
+			}
+			if (metrics != null) {
+				metrics.mGetHeaderIdNanos += System.nanoTime() - start;
+			}
+		}
+	}
+
+	/**
+	 * Marks all rows for a full bind the next time they are shown, without notifying anyone.
+	 * Used when something other than the data, like the configuration, changed what the rows
+	 * look like.
+	 */
+	void invalidateBindings() {
+		mDataVersion++;
+	}
+
+	int getDataVersion() {
+		return mDataVersion;
+	}
+
+	/**
+	 * Adds a header created ahead of time for {@code position} to the header pool.
+	 *
+	 * @return {@code false} if the pool for its header view type is full
+	 */
+	boolean offerWarmHeader(int position, View header) {
+		if (mLevelHeaderCache != null) {
+			// Rows show header stacks, the header is one of the innermost level
+			return mLevelHeaderCache.push(mHeaderLevelCount - 1, header);
+		}
+		return mHeaderCache.push(mDelegate.getHeaderViewType(position), header);
+	}
+
+	/** Creates a wrapper bound to {@code position}, ahead of the list asking for it. */
+	WrapperView createWarmWrapper(int position, ViewGroup parent) {
+		return getView(position, new WrapperView(mContext), parent);
+	}
+
+	/**
+	 * Adds a wrapper created ahead of time to the wrappers handed out when the list has no
+	 * view to convert, at most {@code capacity} per item view type.
+	 */
+	void offerWarmWrapper(int position, WrapperView wv, int capacity) {
+		final int viewType = mDelegate.getItemViewType(position);
+		if (viewType < 0) {
+			return;
+		}
+		if (mWrapperCache == null) {
+			mWrapperCache = new HeaderPool<>(mDelegate.getViewTypeCount(), capacity);
+		}
+		mWrapperCache.push(viewType, wv);
+	}
+
+	// Hands out a wrapper created ahead of time for a row of the same view type if there is one
+	private WrapperView obtainWrapper(int position) {
+		if (mWrapperCache != null) {
+			final int viewType = mDelegate.getItemViewType(position);
+			if (viewType >= 0 && viewType < mWrapperCache.getTypeCount()) {
+				final WrapperView wv = mWrapperCache.pop(viewType);
+				if (wv != null) {
+					return wv;
+				}
+			}
+		}
+		if (mFrameMetrics != null) {
+			mFrameMetrics.mWrapperCreationCount++;
+		}
+		return new WrapperView(mContext);
+	}
+
+	/** Drops the section index without notifying anyone. */
+	void invalidateSectionIndex() {
+		mSectionIndex = null;
+		mDataVersion++;
+	}
+
+	/**
+	 * Carries the binding of an attached row across a range change. Rows outside of the
+	 * replaced range are shifted to their new position and will not be rebound by the next
+	 * {@link #getView(int, View, ViewGroup)}, all others are marked for a full bind.
+	 */
+	void retainBoundView(WrapperView wv, int positionStart, int removedCount, int insertedCount) {
+		// Valid bindings are either from before this change or were retained by an earlier
+		// part of it (moves are described as a removal and an insertion)
+		final boolean isBindingValid = wv.mBindVersion == mDataVersion
+				|| wv.mBindVersion == mDataVersion - 1;
+		if (isBindingValid && wv.mPosition < positionStart) {
+			wv.mBindVersion = mDataVersion;
+			wv.mIsBindingRetained = true;
+		} else if (isBindingValid && wv.mPosition >= positionStart + removedCount) {
+			wv.mPosition += insertedCount - removedCount;
+			wv.mBindVersion = mDataVersion;
+			wv.mIsBindingRetained = true;
+		} else {
+			wv.mBindVersion = NO_VERSION;
+			wv.mIsBindingRetained = false;
+		}
+	}
+
+	@Override
+	public void registerDataSetObserver(DataSetObserver observer) {
+		super.registerDataSetObserver(observer);
+		if (observer instanceof RangeDataSetObserver) {
+			mRangeObservers.add((RangeDataSetObserver) observer);
+		}
+	}
+
+	@Override
+	public void unregisterDataSetObserver(DataSetObserver observer) {
+		super.unregisterDataSetObserver(observer);
+		mRangeObservers.remove(observer);
+	}
+
 	void setDivider(Drawable divider, int dividerHeight) {
 		this.mDivider = divider;
 		this.mDividerHeight = dividerHeight;
@@ -93,14 +660,58 @@ class WrapperAdapter extends BaseAdapter implements StickyListHeadersAdapter {
 		return mDelegate.hasStableIds();
 	}
 
+	/**
+	 * Sets whether every view type of the delegate is split into one for rows starting a
+	 * section and one for all other rows, so the list recycles wrappers into rows which
+	 * already have or lack a header. Must not change while the adapter is set on a list.
+	 */
+	void setSplittingViewTypesByHeader(boolean isSplitting) {
+		mIsSplittingViewTypesByHeader = isSplitting;
+	}
+
+	/**
+	 * Sets whether rows are bound through the lightweight methods of the delegate, which is
+	 * ignored unless it is a {@link StickyListHeadersLightweightAdapter}. Rows bound while
+	 * deferring are bound in full by {@link #completeDeferredBind(WrapperView, ViewGroup)}.
+	 */
+	void setDeferringBinds(boolean isDeferring) {
+		mIsDeferringBinds = isDeferring && mDelegate instanceof StickyListHeadersLightweightAdapter;
+	}
+
+	boolean isDeferringBinds() {
+		return mIsDeferringBinds;
+	}
+
+	/**
+	 * Binds a row in full whose bind was deferred, handing its views back to the delegate as
+	 * convert views. Returns {@code false} if there was nothing to do, rows whose binding is
+	 * out of date are left to the next layout.
+	 */
+	boolean completeDeferredBind(WrapperView wv, ViewGroup parent) {
+		if (!wv.mIsBindDeferred || wv.mBoundAdapter != this || wv.mBindVersion != mDataVersion) {
+			return false;
+		}
+		wv.mBindVersion = NO_VERSION;
+		getView(wv.mPosition, wv, parent);
+		if (mFrameMetrics != null) {
+			mFrameMetrics.mDeferredBindCount++;
+		}
+		return true;
+	}
+
 	@Override
 	public int getItemViewType(int position) {
-		return mDelegate.getItemViewType(position);
+		final int viewType = mDelegate.getItemViewType(position);
+		if (!mIsSplittingViewTypesByHeader || viewType < 0) {
+			return viewType;
+		}
+		return 2 * viewType + (isSectionStart(position) ? 1 : 0);
 	}
 
 	@Override
 	public int getViewTypeCount() {
-		return mDelegate.getViewTypeCount();
+		final int viewTypeCount = mDelegate.getViewTypeCount();
+		return mIsSplittingViewTypesByHeader ? 2 * viewTypeCount : viewTypeCount;
 	}
 
 	@Override
@@ -116,7 +727,7 @@ class WrapperAdapter extends BaseAdapter implements StickyListHeadersAdapter {
 		if (header != null) {
 			// Reset the headers visibility when adding it to the cache
 			header.setVisibility(View.VISIBLE);
-			mHeaderCache.add(header);
+			mHeaderCache.push(wv.mHeaderViewType, header);
 		}
 	}
 
@@ -124,43 +735,115 @@ class WrapperAdapter extends BaseAdapter implements StickyListHeadersAdapter {
 	 * Get a header view. This optionally pulls a header from the supplied
 	 * {@link WrapperView} and will also recycle the divider if it exists.
 	 */
-	private View configureHeader(WrapperView wv, final int position) {
-		View header = wv.mHeader == null ? popHeader() : wv.mHeader;
-		header = mDelegate.getHeaderView(position, header, wv);
+	private View configureHeader(WrapperView wv, int position) {
+		if (mLevelHeaderCache != null) {
+			return configureHeaderStack(wv, position);
+		}
+		final int headerViewType = mDelegate.getHeaderViewType(position);
+		View header = wv.mHeader;
+		if (header != null && wv.mHeaderViewType != headerViewType) {
+			// The attached header has the wrong layout, hand it to a row that can use it
+			recycleHeaderIfExists(wv);
+			header = null;
+		}
+		if (header == null) {
+			header = mHeaderCache.pop(headerViewType);
+		}
+		if (mIsDeferringBinds) {
+			wv.mIsBindDeferred = true;
+			header = getLightweightHeaderView(position, header, wv);
+		} else {
+			header = getHeaderView(position, header, wv);
+		}
 		if (header == null) {
 			throw new NullPointerException("Header view must not be null.");
 		}
+		wv.mHeaderViewType = headerViewType;
 		// If the header isn't clickable, the listselector will be drawn on top of the header
 		header.setClickable(true);
-		header.setOnClickListener(new OnClickListener() {
-			@Override
-			public void onClick(View v) {
-				if(mOnHeaderClickListener != null){
-					long headerId = mDelegate.getHeaderId(position);
-					mOnHeaderClickListener.onHeaderClick(v, position, headerId);
-				}
-			}
-		});
+		header.setOnClickListener(mHeaderClickHandler);
 		return header;
 	}
 
-	private View popHeader() {
-		if (mHeaderCache.size() > 0) {
-			return mHeaderCache.remove(0);
+	/**
+	 * Gets the header stack of a row of a level adapter, with the headers of every level
+	 * starting a section at {@code position}. Headers of other levels go back to the pool.
+	 */
+	private View configureHeaderStack(WrapperView wv, int position) {
+		HeaderStackView stack = (HeaderStackView) wv.mHeader;
+		if (stack == null) {
+			stack = (HeaderStackView) mHeaderCache.pop(0);
+		}
+		if (stack == null) {
+			stack = new HeaderStackView(mContext, mHeaderLevelCount);
+		}
+		final int firstLevel = getOutermostLevelStartingAt(position);
+		for (int level = 0; level < mHeaderLevelCount; level++) {
+			View header = stack.getHeader(level);
+			if (level < firstLevel) {
+				if (header != null) {
+					stack.setHeader(level, null);
+					mLevelHeaderCache.push(level, header);
+				}
+				continue;
+			}
+			if (header == null) {
+				header = mLevelHeaderCache.pop(level);
+			}
+			header = getLevelHeaderView(position, level, header, stack);
+			if (header == null) {
+				throw new NullPointerException("Header view must not be null.");
+			}
+			header.setClickable(true);
+			header.setOnClickListener(mLevelHeaderClickHandler);
+			stack.setHeader(level, header);
 		}
-		return null;
+		wv.mHeaderViewType = 0;
+		return stack;
+	}
+
+	HeaderPool<View> getHeaderPool() {
+		return mHeaderCache;
 	}
 
 	/** Returns {@code true} if the previous position has the same header ID. */
 	private boolean previousPositionHasSameHeader(int position) {
-		return position != 0 && mDelegate.getHeaderId(position)
-				== mDelegate.getHeaderId(position - 1);
+		return !isSectionStart(position);
 	}
 
 	@Override
 	public WrapperView getView(int position, View convertView, ViewGroup parent) {
-		WrapperView wv = (convertView == null) ? new WrapperView(mContext) : (WrapperView) convertView;
-		View item = mDelegate.getView(position, wv.mItem, parent);
+		WrapperView wv = (convertView == null) ? obtainWrapper(position) : (WrapperView) convertView;
+		final boolean isBindingRetained = wv.mIsBindingRetained;
+		wv.mIsBindingRetained = false;
+		if (isBindingRetained && wv.mBoundAdapter == this && wv.mBindVersion == mDataVersion
+				&& wv.mPosition == position) {
+			// Untouched by the last range change, only the header may have to follow a moved
+			// section start. Views handed back for other reasons are bound again, the list
+			// may have asked for that with invalidateViews().
+			View header = wv.mHeader;
+			if (previousPositionHasSameHeader(position)) {
+				recycleHeaderIfExists(wv);
+				header = null;
+			} else if (header == null || mLevelHeaderCache != null
+					&& ((HeaderStackView) header).getFirstLevel()
+					!= getOutermostLevelStartingAt(position)) {
+				header = configureHeader(wv, position);
+			}
+			countHeaderChurn(wv, header);
+			wv.update(wv.mItem, header, mDivider, mDividerHeight);
+			if (wv.mIsBindDeferred && !mIsDeferringBinds && mDeferredBinder != null) {
+				// Left to the deferred binder, so a layout does not bind all rows at once
+				mDeferredBinder.schedule();
+			}
+			return wv;
+		}
+		wv.mBoundAdapter = this;
+		wv.mPosition = position;
+		wv.mBindVersion = mDataVersion;
+		wv.mIsBindDeferred = mIsDeferringBinds;
+		View item = mIsDeferringBinds ? getLightweightDelegateView(position, wv.mItem, parent)
+				: getDelegateView(position, wv.mItem, parent);
 		View header = null;
 		if (previousPositionHasSameHeader(position)) {
 			recycleHeaderIfExists(wv);
@@ -168,14 +851,44 @@ class WrapperAdapter extends BaseAdapter implements StickyListHeadersAdapter {
 			header = configureHeader(wv, position);
 		}
 
+		countHeaderChurn(wv, header);
 		wv.update(item, header, mDivider, mDividerHeight);
 		return wv;
 	}
 
+	// Counts headers added to and removed from wrappers, which happens when the list recycles
+	// a wrapper into a row of the other kind
+	private void countHeaderChurn(WrapperView wv, View header) {
+		final StickyListFrameMetrics metrics = mFrameMetrics;
+		if (metrics != null && wv.mHeader != header) {
+			if (wv.mHeader != null) {
+				metrics.mInlineHeaderDetachCount++;
+			}
+			if (header != null) {
+				metrics.mInlineHeaderAttachCount++;
+			}
+		}
+	}
+
 	void setOnHeaderClickListener(OnHeaderClickListener onHeaderClickListener){
 		this.mOnHeaderClickListener = onHeaderClickListener;
 	}
 
+	/**
+	 * Returns the position of the row {@code wv} shows, or a negative value if it is not known.
+	 * The list keeps the position a wrapper was bound to up to date across range changes.
+	 */
+	int getBoundPosition(WrapperView wv) {
+		return wv.mPosition;
+	}
+
+	/** Reports a click on {@code header}, the header of the section {@code position} is in. */
+	void performHeaderClick(View header, int position) {
+		if (mOnHeaderClickListener != null) {
+			mOnHeaderClickListener.onHeaderClick(header, position, getHeaderId(position));
+		}
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		 return o instanceof StickyListHeadersAdapter && mDelegate.equals(o);
@@ -207,13 +920,111 @@ class WrapperAdapter extends BaseAdapter implements StickyListHeadersAdapter {
 		return mDelegate.toString();
 	}
 
+	/** Returns the view of the delegate for {@code position}, timed for the frame metrics. */
+	View getDelegateView(int position, View convertView, ViewGroup parent) {
+		final StickyListFrameMetrics metrics = mFrameMetrics;
+		if (metrics == null) {
+			return mDelegate.getView(position, convertView, parent);
+		}
+		final long start = System.nanoTime();
+		final View view = mDelegate.getView(position, convertView, parent);
+		metrics.mGetViewNanos += System.nanoTime() - start;
+		return view;
+	}
+
+	// Returns the lightweight view of the delegate, timed like a full bind
+	private View getLightweightDelegateView(int position, View convertView, ViewGroup parent) {
+		final StickyListHeadersLightweightAdapter delegate =
+				(StickyListHeadersLightweightAdapter) mDelegate;
+		final StickyListFrameMetrics metrics = mFrameMetrics;
+		if (metrics == null) {
+			return delegate.getLightweightView(position, convertView, parent);
+		}
+		final long start = System.nanoTime();
+		final View view = delegate.getLightweightView(position, convertView, parent);
+		metrics.mGetViewNanos += System.nanoTime() - start;
+		metrics.mLightweightBindCount++;
+		return view;
+	}
+
+	// Returns the lightweight header view of the delegate, timed like a full bind
+	private View getLightweightHeaderView(int position, View convertView, ViewGroup parent) {
+		final StickyListHeadersLightweightAdapter delegate =
+				(StickyListHeadersLightweightAdapter) mDelegate;
+		final StickyListFrameMetrics metrics = mFrameMetrics;
+		if (metrics == null) {
+			return delegate.getLightweightHeaderView(position, convertView, parent);
+		}
+		final long start = System.nanoTime();
+		final View header = delegate.getLightweightHeaderView(position, convertView, parent);
+		metrics.mGetHeaderViewNanos += System.nanoTime() - start;
+		return header;
+	}
+
 	@Override
 	public View getHeaderView(int position, View convertView, ViewGroup parent) {
-		return mDelegate.getHeaderView(position, convertView, parent);
+		final StickyListFrameMetrics metrics = mFrameMetrics;
+		if (metrics == null) {
+			return mDelegate.getHeaderView(position, convertView, parent);
+		}
+		final long start = System.nanoTime();
+		final View header = mDelegate.getHeaderView(position, convertView, parent);
+		metrics.mGetHeaderViewNanos += System.nanoTime() - start;
+		return header;
+	}
+
+	/** Returns the header view of {@code level}, timed for the frame metrics. */
+	View getLevelHeaderView(int position, int level, View convertView, ViewGroup parent) {
+		final StickyListHeadersLevelAdapter delegate = (StickyListHeadersLevelAdapter) mDelegate;
+		final StickyListFrameMetrics metrics = mFrameMetrics;
+		if (metrics == null) {
+			return delegate.getHeaderView(position, level, convertView, parent);
+		}
+		final long start = System.nanoTime();
+		final View header = delegate.getHeaderView(position, level, convertView, parent);
+		metrics.mGetHeaderViewNanos += System.nanoTime() - start;
+		return header;
 	}
 
 	@Override
 	public long getHeaderId(int position) {
-		return mDelegate.getHeaderId(position);
+		final SectionIndex sectionIndex = getSectionIndex();
+		if (sectionIndex != null) {
+			return sectionIndex.getHeaderId(position);
+		}
+		return getDelegateHeaderId(position);
+	}
+
+	private long getDelegateHeaderId(int position) {
+		final HeaderIdMemo memo = mHeaderIdMemo;
+		final StickyListFrameMetrics metrics = mFrameMetrics;
+		if (memo != null && memo.contains(position, mDataVersion)) {
+			if (metrics != null) {
+				metrics.mHeaderIdMemoHitCount++;
+			}
+			return memo.get(position);
+		}
+		final long start = metrics != null ? System.nanoTime() : 0;
+		final long headerId = mDelegate.getHeaderId(position);
+		if (metrics != null) {
+			metrics.mGetHeaderIdNanos += System.nanoTime() - start;
+		}
+		if (memo != null) {
+			memo.put(position, headerId);
+			if (metrics != null) {
+				metrics.mHeaderIdMemoMissCount++;
+			}
+		}
+		return headerId;
+	}
+
+	@Override
+	public int getHeaderViewType(int position) {
+		return mDelegate.getHeaderViewType(position);
+	}
+
+	@Override
+	public int getHeaderViewTypeCount() {
+		return mDelegate.getHeaderViewTypeCount();
 	}
 }
@@ -3,11 +3,13 @@ package com.eiselts.stickylistheaders;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.view.ContextMenu.ContextMenuInfo;
 import android.view.View;
 import android.widget.ListView;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 class WrapperListView extends ListView {
 
@@ -16,10 +18,12 @@ class WrapperListView extends ListView {
 	}
 
 	private LifeCycleListener mLifeCycleListener;
-	private List<View> mFooterViews;
+	private Set<View> mFooterViews;
 	private int mTopClippingLength;
-	private Rect mSelectorRect = new Rect();
+	private final Rect mClippingRect = new Rect();
 	private boolean mBlockLayoutChildren = false;
+	// set while headers are shown as rows of their own
+	private HeaderRowAdapter mHeaderRowAdapter;
 
 	public WrapperListView(Context context) {
 		super(context);
@@ -33,37 +37,47 @@ class WrapperListView extends ListView {
 		return super.performItemClick(view, position, id);
 	}
 
-	private void positionSelectorRect() {
-		if (!mSelectorRect.isEmpty()) {
-			int selectorPosition = getSelectorPosition();
-			if (selectorPosition >= 0) {
-				int firstVisibleItem = getFixedFirstVisibleItem();
-				View v = getChildAt(selectorPosition - firstVisibleItem);
-				if (v instanceof WrapperView) {
-					WrapperView wrapper = ((WrapperView) v);
-					mSelectorRect.top = wrapper.getTop() + wrapper.mItemTop;
-				}
-			}
+	@Override
+	protected ContextMenuInfo getContextMenuInfo() {
+		final ContextMenuInfo menuInfo = super.getContextMenuInfo();
+		if (mHeaderRowAdapter != null && menuInfo instanceof AdapterContextMenuInfo) {
+			final AdapterContextMenuInfo info = (AdapterContextMenuInfo) menuInfo;
+			return new AdapterContextMenuInfo(info.targetView,
+					getPositionWithoutHeaderRows(info.position), info.id);
 		}
+		return menuInfo;
+	}
+
+	void setHeaderRowAdapter(HeaderRowAdapter headerRowAdapter) {
+		mHeaderRowAdapter = headerRowAdapter;
 	}
 
-	private int getSelectorPosition() {
-		for (int i = 0; i < getChildCount(); i++) {
-			if (getChildAt(i).getBottom() == mSelectorRect.bottom) {
-				return i + getFixedFirstVisibleItem();
-			}
+	/**
+	 * Translates a position of this list to the one it would have without header rows, so
+	 * header views keep theirs and rows and footers report the positions of the delegate.
+	 */
+	int getPositionWithoutHeaderRows(int position) {
+		if (mHeaderRowAdapter == null) {
+			return position;
+		}
+		final int headerViewCount = getHeaderViewsCount();
+		final int row = position - headerViewCount;
+		final int rowCount = mHeaderRowAdapter.getCount();
+		if (row < 0) {
+			return position;
+		} else if (row >= rowCount) {
+			return position - (rowCount - mHeaderRowAdapter.getDelegateCount());
 		}
-		return -1;
+		return headerViewCount + mHeaderRowAdapter.getDelegatePosition(row);
 	}
 
 	@Override
 	protected void dispatchDraw(Canvas canvas) {
-		positionSelectorRect();
 		if (mTopClippingLength != 0) {
 			canvas.save();
-			Rect clipping = canvas.getClipBounds();
-			clipping.top = mTopClippingLength;
-			canvas.clipRect(clipping);
+			canvas.getClipBounds(mClippingRect);
+			mClippingRect.top = mTopClippingLength;
+			canvas.clipRect(mClippingRect);
 			super.dispatchDraw(canvas);
 			canvas.restore();
 		} else {
@@ -90,7 +104,8 @@ class WrapperListView extends ListView {
 
 	private void addInternalFooterView(View v) {
 		if (mFooterViews == null) {
-			mFooterViews = new ArrayList<>();
+			// Looked up for children of the list while scrolling, views are compared by identity
+			mFooterViews = Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
 		}
 		mFooterViews.add(v);
 	}
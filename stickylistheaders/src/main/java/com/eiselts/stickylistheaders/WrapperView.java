@@ -20,7 +20,16 @@ public class WrapperView extends ViewGroup {
 	Drawable mDivider;
 	int mDividerHeight;
 	View mHeader;
-	int mItemTop;
+	int mHeaderViewType;
+	// adapter which bound this view, and the position it is currently bound to
+	WrapperAdapter mBoundAdapter;
+	int mPosition;
+	// data version of the adapter the binding is known to be correct for
+	int mBindVersion = WrapperAdapter.NO_VERSION;
+	// set when a range change kept the binding, so the next getView can skip rebinding
+	boolean mIsBindingRetained;
+	// whether the item or header was bound lightweight while the list was flinging
+	boolean mIsBindDeferred;
 
 	WrapperView(Context c) {
 		super(c);
@@ -122,14 +131,11 @@ public class WrapperView extends ViewGroup {
 		if (mHeader != null) {
 			int headerHeight = mHeader.getMeasuredHeight();
 			mHeader.layout(left, top, right, headerHeight);
-			mItemTop = headerHeight;
 			mItem.layout(left, headerHeight, right, bottom);
 		} else if (mDivider != null) {
 			mDivider.setBounds(left, top, right, mDividerHeight);
-			mItemTop = mDividerHeight;
 			mItem.layout(left, mDividerHeight, right, bottom);
 		} else {
-			mItemTop = top;
 			mItem.layout(left, top, right, bottom);
 		}
 	}
@@ -0,0 +1,85 @@
+package com.eiselts.stickylistheaders;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stores header ids of windows of positions in a {@link HeaderIdMemo} and looks them up again.
+ */
+public class HeaderIdMemoTest {
+
+    private static final int VERSION = 1;
+
+    @Test
+    public void get_returnsStoredHeaderId() {
+        final HeaderIdMemo memo = new HeaderIdMemo();
+
+        assertFalse(memo.contains(5, VERSION));
+        memo.put(5, 42);
+
+        assertTrue(memo.contains(5, VERSION));
+        assertEquals(42, memo.get(5));
+        assertFalse(memo.contains(6, VERSION));
+    }
+
+    @Test
+    public void contains_otherVersion_dropsAllEntries() {
+        final HeaderIdMemo memo = new HeaderIdMemo();
+        memo.contains(5, VERSION);
+        memo.put(5, 42);
+
+        assertFalse(memo.contains(5, VERSION + 1));
+        assertFalse(memo.contains(5, VERSION));
+    }
+
+    @Test
+    public void put_adjacentPositions_keepsWholeWindow() {
+        final HeaderIdMemo memo = new HeaderIdMemo();
+        final int first = 100;
+        memo.contains(first, VERSION);
+        for (int position = first; position < first + HeaderIdMemo.DEFAULT_CAPACITY; position++) {
+            memo.put(position, position * 2L);
+        }
+
+        for (int position = first; position < first + HeaderIdMemo.DEFAULT_CAPACITY; position++) {
+            assertTrue(memo.contains(position, VERSION));
+            assertEquals(position * 2L, memo.get(position));
+        }
+    }
+
+    @Test
+    public void put_positionOneCapacityAway_evictsEntry() {
+        final HeaderIdMemo memo = new HeaderIdMemo();
+        memo.contains(0, VERSION);
+        memo.put(3, 1);
+
+        memo.put(3 + HeaderIdMemo.DEFAULT_CAPACITY, 2);
+
+        assertFalse(memo.contains(3, VERSION));
+        assertEquals(2, memo.get(3 + HeaderIdMemo.DEFAULT_CAPACITY));
+    }
+
+    @Test
+    public void ensureWindow_keepsEntriesAndHoldsLargerWindow() {
+        final HeaderIdMemo memo = new HeaderIdMemo();
+        memo.contains(0, VERSION);
+        memo.put(3, 1);
+        final int rowCount = 3 * HeaderIdMemo.DEFAULT_CAPACITY;
+
+        memo.ensureWindow(rowCount);
+
+        assertTrue(memo.contains(3, VERSION));
+        assertEquals(1, memo.get(3));
+        final int windowSize = rowCount + 2 * HeaderIdMemo.WINDOW_MARGIN;
+        for (int position = 0; position < windowSize; position++) {
+            memo.put(position, position);
+        }
+        for (int position = 0; position < windowSize; position++) {
+            assertTrue(memo.contains(position, VERSION));
+            assertEquals(position, memo.get(position));
+        }
+    }
+}
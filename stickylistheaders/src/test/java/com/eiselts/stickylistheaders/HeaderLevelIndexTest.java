@@ -0,0 +1,97 @@
+package com.eiselts.stickylistheaders;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Builds {@link HeaderLevelIndex}es of two levels and updates them with ranges of replaced
+ * positions, checking every level against an index built from scratch.
+ */
+public class HeaderLevelIndexTest {
+
+    // The inner header ids do not change at 2, where the outer ones do
+    private static final long[] OUTER_HEADER_IDS = {1, 1, 2, 2, 2, 2, 3, 3};
+    private static final long[] INNER_HEADER_IDS = {5, 5, 5, 6, 6, 7, 5, 5};
+
+    @Test
+    public void build_nestsInnerSectionsInOuterOnes() {
+        final HeaderLevelIndex index = build(OUTER_HEADER_IDS, INNER_HEADER_IDS);
+
+        assertEquals(2, index.getLevelCount());
+        assertEquals(3, index.getLevel(0).getSectionCount());
+        assertEquals(5, index.getInnermostLevel().getSectionCount());
+        assertEquals(2, index.getInnermostLevel().getPositionForSection(1));
+        assertEquals(6, index.getInnermostLevel().getPositionForSection(4));
+    }
+
+    @Test
+    public void getOutermostLevelStartingAt_returnsLevelOfSectionStart() {
+        final HeaderLevelIndex index = build(OUTER_HEADER_IDS, INNER_HEADER_IDS);
+
+        assertEquals(0, index.getOutermostLevelStartingAt(0));
+        assertEquals(0, index.getOutermostLevelStartingAt(2));
+        assertEquals(1, index.getOutermostLevelStartingAt(3));
+        assertEquals(2, index.getOutermostLevelStartingAt(4));
+    }
+
+    @Test
+    public void replaceRange_atEdges_matchesBuild() {
+        // Outer section starts, an inner one, the last position of an outer section and the
+        // last position
+        for (int position : new int[] {0, 2, 3, 5, 7}) {
+            assertReplaceMatchesBuild(position, 0, new long[] {9}, new long[] {9});
+            assertReplaceMatchesBuild(position, 0, new long[] {OUTER_HEADER_IDS[position]},
+                    new long[] {INNER_HEADER_IDS[position]});
+            assertReplaceMatchesBuild(position, 1, new long[0], new long[0]);
+            assertReplaceMatchesBuild(position, 1, new long[] {9}, new long[] {9});
+        }
+        assertReplaceMatchesBuild(OUTER_HEADER_IDS.length, 0, new long[] {3}, new long[] {7});
+    }
+
+    @Test
+    public void removeOuterSection_keepsInnerSectionsApart() {
+        // The inner sections before and after have the same header id, but different outer
+        // ones
+        final HeaderLevelIndex index = assertReplaceMatchesBuild(2, 4, new long[0], new long[0]);
+
+        assertEquals(2, index.getInnermostLevel().getSectionCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noLevels_throws() {
+        HeaderLevelIndex.build((position, level) -> 0, 0, 1);
+    }
+
+    private static HeaderLevelIndex build(long[] outerHeaderIds, long[] innerHeaderIds) {
+        return HeaderLevelIndex.build((position, level) ->
+                level == 0 ? outerHeaderIds[position] : innerHeaderIds[position],
+                2, outerHeaderIds.length);
+    }
+
+    private static HeaderLevelIndex assertReplaceMatchesBuild(int positionStart,
+            int removedCount, long[] insertedOuterHeaderIds, long[] insertedInnerHeaderIds) {
+        final long[] outer = SectionIndexTest.replace(OUTER_HEADER_IDS, positionStart,
+                removedCount, insertedOuterHeaderIds);
+        final long[] inner = SectionIndexTest.replace(INNER_HEADER_IDS, positionStart,
+                removedCount, insertedInnerHeaderIds);
+        final HeaderLevelIndex index = build(OUTER_HEADER_IDS, INNER_HEADER_IDS);
+
+        index.replaceRange(positionStart, removedCount, insertedOuterHeaderIds.length,
+                (position, level) -> level == 0 ? outer[position] : inner[position]);
+
+        final HeaderLevelIndex built = build(outer, inner);
+        final String message = "Replacing " + removedCount + " at " + positionStart + " by "
+                + Arrays.toString(insertedOuterHeaderIds) + ", "
+                + Arrays.toString(insertedInnerHeaderIds);
+        SectionIndexTest.assertSameSections(message, built.getLevel(0), index.getLevel(0), outer);
+        SectionIndexTest.assertSameSections(message, built.getLevel(1), index.getLevel(1), inner);
+        for (int position = 0; position < outer.length; position++) {
+            assertEquals(message, built.getOutermostLevelStartingAt(position),
+                    index.getOutermostLevelStartingAt(position));
+        }
+        return index;
+    }
+}
@@ -0,0 +1,81 @@
+package com.eiselts.stickylistheaders;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pushes headers of several types into a {@link HeaderPool} and pops them again.
+ */
+public class HeaderPoolTest {
+
+    @Test
+    public void pop_returnsLastPushedHeaderOfType() {
+        final HeaderPool<String> pool = new HeaderPool<>(2, 4);
+        pool.push(0, "a");
+        pool.push(1, "b");
+        pool.push(0, "c");
+
+        assertSame("c", pool.pop(0));
+        assertSame("a", pool.pop(0));
+        assertNull(pool.pop(0));
+        assertSame("b", pool.pop(1));
+    }
+
+    @Test
+    public void push_fullType_dropsHeader() {
+        final HeaderPool<String> pool = new HeaderPool<>(2, 2);
+
+        assertTrue(pool.push(0, "a"));
+        assertTrue(pool.push(0, "b"));
+        assertFalse(pool.push(0, "c"));
+        assertTrue(pool.push(1, "d"));
+        assertEquals(2, pool.size(0));
+        assertSame("b", pool.pop(0));
+    }
+
+    @Test
+    public void push_noCapacity_dropsHeader() {
+        final HeaderPool<String> pool = new HeaderPool<>(1, 0);
+
+        assertFalse(pool.push(0, "a"));
+        assertEquals(0, pool.size(0));
+        assertNull(pool.pop(0));
+    }
+
+    @Test
+    public void pop_countsHitsAndMisses() {
+        final HeaderPool<String> pool = new HeaderPool<>(1, 4);
+        pool.push(0, "a");
+
+        pool.pop(0);
+        pool.pop(0);
+        pool.pop(0);
+
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void clear_emptiesEveryType() {
+        final HeaderPool<String> pool = new HeaderPool<>(2, 4);
+        pool.push(0, "a");
+        pool.push(1, "b");
+
+        pool.clear();
+
+        assertEquals(0, pool.size(0));
+        assertEquals(0, pool.size(1));
+        assertNull(pool.pop(1));
+        assertTrue(pool.push(1, "c"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noTypes_throws() {
+        new HeaderPool<String>(0, 4);
+    }
+}
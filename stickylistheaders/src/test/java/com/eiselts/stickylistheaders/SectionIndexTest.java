@@ -0,0 +1,223 @@
+package com.eiselts.stickylistheaders;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Builds {@link SectionIndex}es and updates them with ranges of replaced positions, checking
+ * every update against an index built from scratch for the same header ids.
+ */
+public class SectionIndexTest {
+
+    // Sections start at 0, 3, 5 and 8, the last one is a single position
+    private static final long[] HEADER_IDS = {1, 1, 1, 2, 2, 3, 3, 3, 4};
+    private static final int[] SECTION_STARTS = {0, 3, 5, 8};
+    // A section start, the last position of a section, the first and the last position
+    private static final int[] EDGES = {3, 4, 0, 8};
+
+    @Test
+    public void build_startsSectionWhereHeaderIdChanges() {
+        final SectionIndex index = build(HEADER_IDS);
+
+        assertEquals(HEADER_IDS.length, index.getCount());
+        assertEquals(SECTION_STARTS.length, index.getSectionCount());
+        for (int section = 0; section < SECTION_STARTS.length; section++) {
+            assertEquals(SECTION_STARTS[section], index.getPositionForSection(section));
+        }
+        assertEquals(2, index.getSectionForPosition(7));
+        assertTrue(index.isSectionStart(5));
+        assertFalse(index.isSectionStart(6));
+    }
+
+    @Test
+    public void build_looksUpEveryPositionOnce() {
+        final int[] lookups = new int[HEADER_IDS.length];
+        SectionIndex.build(position -> {
+            lookups[position]++;
+            return HEADER_IDS[position];
+        }, HEADER_IDS.length);
+
+        for (int lookup : lookups) {
+            assertEquals(1, lookup);
+        }
+    }
+
+    @Test
+    public void getSectionForRow_countsHeaderRowOfEverySection() {
+        final SectionIndex index = build(HEADER_IDS);
+
+        // The header row of section 1 is at 3 + 1, its last row at 5 + 1
+        assertEquals(0, index.getSectionForRow(3));
+        assertEquals(1, index.getSectionForRow(4));
+        assertEquals(1, index.getSectionForRow(6));
+        assertEquals(2, index.getSectionForRow(7));
+        assertEquals(3, index.getSectionForRow(HEADER_IDS.length + SECTION_STARTS.length - 1));
+    }
+
+    @Test
+    public void getSectionForHeaderId_returnsFirstSection() {
+        final SectionIndex index = build(new long[] {5, 5, 2, 5, 7, 2});
+
+        assertEquals(0, index.getSectionForHeaderId(5));
+        assertEquals(1, index.getSectionForHeaderId(2));
+        assertEquals(3, index.getSectionForHeaderId(7));
+        assertEquals(-1, index.getSectionForHeaderId(3));
+    }
+
+    @Test
+    public void insert_atEdges_matchesBuild() {
+        for (int position : EDGES) {
+            // A new section, and rows of the sections before and after the position
+            assertReplaceMatchesBuild(HEADER_IDS, position, 0, 9);
+            assertReplaceMatchesBuild(HEADER_IDS, position, 0, headerIdBefore(position));
+            assertReplaceMatchesBuild(HEADER_IDS, position, 0, HEADER_IDS[position]);
+            assertReplaceMatchesBuild(HEADER_IDS, position, 0, 9, 9, HEADER_IDS[position]);
+        }
+        // Behind the last position
+        assertReplaceMatchesBuild(HEADER_IDS, HEADER_IDS.length, 0, 4);
+        assertReplaceMatchesBuild(HEADER_IDS, HEADER_IDS.length, 0, 9);
+    }
+
+    @Test
+    public void remove_atEdges_matchesBuild() {
+        for (int position : EDGES) {
+            assertReplaceMatchesBuild(HEADER_IDS, position, 1);
+        }
+        // Whole sections, at the start, inside and at the end
+        assertReplaceMatchesBuild(HEADER_IDS, 0, 3);
+        assertReplaceMatchesBuild(HEADER_IDS, 3, 2);
+        assertReplaceMatchesBuild(HEADER_IDS, 8, 1);
+        assertReplaceMatchesBuild(HEADER_IDS, 0, HEADER_IDS.length);
+    }
+
+    @Test
+    public void replace_atEdges_matchesBuild() {
+        for (int position : EDGES) {
+            assertReplaceMatchesBuild(HEADER_IDS, position, 1, 9);
+            assertReplaceMatchesBuild(HEADER_IDS, position, 1, headerIdBefore(position));
+            assertReplaceMatchesBuild(HEADER_IDS, position, 1, headerIdAfter(position));
+            assertReplaceMatchesBuild(HEADER_IDS, position, 1, 9, 9);
+        }
+        assertReplaceMatchesBuild(HEADER_IDS, 2, 4, 6, 7);
+    }
+
+    @Test
+    public void removeSection_mergesNeighboursWithEqualHeaderIds() {
+        final long[] headerIds = {1, 1, 2, 2, 1, 1, 3};
+
+        final SectionIndex index = assertReplaceMatchesBuild(headerIds, 2, 2);
+
+        assertEquals(2, index.getSectionCount());
+        assertEquals(4, index.getPositionForSection(1));
+    }
+
+    @Test
+    public void replaceSection_mergesNeighboursWithEqualHeaderIds() {
+        final long[] headerIds = {1, 1, 2, 2, 1, 1, 3};
+
+        // With the section before, the section after, and both
+        assertEquals(4, assertReplaceMatchesBuild(headerIds, 2, 2, 1, 4).getSectionCount());
+        assertEquals(4, assertReplaceMatchesBuild(headerIds, 2, 2, 4, 1).getSectionCount());
+        assertEquals(2, assertReplaceMatchesBuild(headerIds, 2, 2, 1).getSectionCount());
+    }
+
+    @Test
+    public void replaceRange_looksUpInsertedPositionsOnly() {
+        final SectionIndex index = build(HEADER_IDS);
+        final List<Integer> lookups = new ArrayList<>();
+
+        index.replaceRange(3, 2, 3, position -> {
+            lookups.add(position);
+            return 9;
+        });
+
+        assertEquals(Arrays.asList(3, 4, 5), lookups);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void replaceRange_outOfRange_throws() {
+        build(HEADER_IDS).replaceRange(8, 2, 0, position -> 0);
+    }
+
+    private static long headerIdBefore(int position) {
+        return position > 0 ? HEADER_IDS[position - 1] : 0;
+    }
+
+    private static long headerIdAfter(int position) {
+        return position + 1 < HEADER_IDS.length ? HEADER_IDS[position + 1] : 0;
+    }
+
+    private static SectionIndex build(long[] headerIds) {
+        return SectionIndex.build(position -> headerIds[position], headerIds.length);
+    }
+
+    // Replaces [positionStart, positionStart + removedCount) of the header ids by the inserted
+    // ones, checks the updated index against one built for the result and returns it
+    private static SectionIndex assertReplaceMatchesBuild(long[] headerIds, int positionStart,
+            int removedCount, long... insertedHeaderIds) {
+        final long[] replaced = replace(headerIds, positionStart, removedCount,
+                insertedHeaderIds);
+        final SectionIndex index = build(headerIds);
+
+        index.replaceRange(positionStart, removedCount, insertedHeaderIds.length,
+                position -> replaced[position]);
+
+        final String message = "Replacing " + removedCount + " at " + positionStart + " by "
+                + Arrays.toString(insertedHeaderIds) + " in " + Arrays.toString(headerIds);
+        assertSameSections(message, build(replaced), index, replaced);
+        return index;
+    }
+
+    static long[] replace(long[] headerIds, int positionStart, int removedCount,
+            long[] insertedHeaderIds) {
+        final long[] replaced =
+                new long[headerIds.length - removedCount + insertedHeaderIds.length];
+        System.arraycopy(headerIds, 0, replaced, 0, positionStart);
+        System.arraycopy(insertedHeaderIds, 0, replaced, positionStart,
+                insertedHeaderIds.length);
+        System.arraycopy(headerIds, positionStart + removedCount, replaced,
+                positionStart + insertedHeaderIds.length,
+                headerIds.length - positionStart - removedCount);
+        return replaced;
+    }
+
+    static void assertSameSections(String message, SectionIndex expected, SectionIndex actual,
+            long[] headerIds) {
+        assertEquals(message, expected.getCount(), actual.getCount());
+        assertEquals(message, expected.getSectionCount(), actual.getSectionCount());
+        for (int section = 0; section < expected.getSectionCount(); section++) {
+            assertEquals(message, expected.getPositionForSection(section),
+                    actual.getPositionForSection(section));
+            assertEquals(message, expected.getHeaderIdForSection(section),
+                    actual.getHeaderIdForSection(section));
+        }
+        // Backwards as well, lookups start at the section found last
+        for (int position = 0; position < expected.getCount(); position++) {
+            assertEquals(message, expected.getSectionForPosition(position),
+                    actual.getSectionForPosition(position));
+        }
+        for (int position = expected.getCount() - 1; position >= 0; position--) {
+            assertEquals(message, expected.getSectionForPosition(position),
+                    actual.getSectionForPosition(position));
+        }
+        final int rowCount = expected.getCount() + expected.getSectionCount();
+        for (int row = 0; row < rowCount; row++) {
+            assertEquals(message, expected.getSectionForRow(row), actual.getSectionForRow(row));
+        }
+        for (int row = rowCount - 1; row >= 0; row--) {
+            assertEquals(message, expected.getSectionForRow(row), actual.getSectionForRow(row));
+        }
+        for (long headerId : headerIds) {
+            assertEquals(message, expected.getSectionForHeaderId(headerId),
+                    actual.getSectionForHeaderId(headerId));
+        }
+        assertEquals(message, -1, actual.getSectionForHeaderId(-1));
+    }
+}
@@ -0,0 +1,139 @@
+package com.eiselts.stickylistheaders;
+
+import android.app.Activity;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Swaps cursors into a {@link StickyCursorAdapter} shown by a list and checks that the list
+ * answers header ids from the index of the adapter, without indexing the adapter again on
+ * the main thread or reading the cursor on an executor of its own.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class StickyCursorAdapterTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int ROW_HEIGHT = 40;
+    private static final int SECTION_SIZE = 7;
+    private static final int ROW_COUNT = 1000;
+
+    private final Queue<Runnable> mCursorTasks = new ArrayDeque<>();
+    private final Queue<Runnable> mSectionIndexTasks = new ArrayDeque<>();
+    private StickyListHeadersListView mListView;
+    private RowAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mAdapter = new RowAdapter(activity, mCursorTasks);
+        mListView = new StickyListHeadersListView(activity);
+        activity.setContentView(mListView, new ViewGroup.LayoutParams(WIDTH, HEIGHT));
+        mListView.setSectionIndexExecutor(mSectionIndexTasks::add);
+        mListView.setAdapter(mAdapter);
+        idle();
+    }
+
+    @Test
+    public void changeCursorAsync_listUsesIndexOfAdapter() {
+        mAdapter.changeCursorAsync(cursor(ROW_COUNT));
+        runAll(mCursorTasks);
+        mAdapter.mGetHeaderIdCount = 0;
+        idle();
+
+        assertTrue("Rows shown", mListView.getWrappedList().getChildCount() > 0);
+        assertEquals("getHeaderId calls", 0, mAdapter.mGetHeaderIdCount);
+        assertEquals("Section index builds", 0, mSectionIndexTasks.size());
+        assertEquals("Sections", (ROW_COUNT + SECTION_SIZE - 1) / SECTION_SIZE,
+                mListView.getSectionForPosition(ROW_COUNT - 1) + 1);
+    }
+
+    @Test
+    public void changeCursor_listUsesIndexOfAdapter() {
+        mAdapter.changeCursor(cursor(ROW_COUNT));
+        mAdapter.mGetHeaderIdCount = 0;
+        idle();
+
+        assertTrue("Rows shown", mListView.getWrappedList().getChildCount() > 0);
+        assertEquals("getHeaderId calls", 0, mAdapter.mGetHeaderIdCount);
+        assertEquals("Section index builds", 0, mSectionIndexTasks.size());
+    }
+
+    private static Cursor cursor(int rowCount) {
+        final MatrixCursor cursor = new MatrixCursor(new String[] {"_id", "section"});
+        for (int i = 0; i < rowCount; i++) {
+            cursor.addRow(new Object[] {i, i / SECTION_SIZE});
+        }
+        return cursor;
+    }
+
+    private static void runAll(Queue<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.remove().run();
+        }
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    /** Adapter of one text per row, counting the header ids the list asks it for. */
+    private static class RowAdapter extends StickyCursorAdapter {
+
+        int mGetHeaderIdCount;
+
+        RowAdapter(Context context, Queue<Runnable> tasks) {
+            super(context, "section", tasks::add);
+        }
+
+        @Override
+        public long getHeaderId(int position) {
+            mGetHeaderIdCount++;
+            return super.getHeaderId(position);
+        }
+
+        @Override
+        public View newView(Context context, Cursor cursor, ViewGroup parent) {
+            final TextView row = new TextView(context);
+            row.setLayoutParams(new AbsListView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ROW_HEIGHT));
+            return row;
+        }
+
+        @Override
+        public void bindView(View view, Context context, Cursor cursor) {
+            ((TextView) view).setText("row " + cursor.getLong(0));
+        }
+
+        @Override
+        public View getHeaderView(int position, View convertView, ViewGroup parent) {
+            final TextView header = convertView != null
+                    ? (TextView) convertView : new TextView(parent.getContext());
+            header.setText("header");
+            return header;
+        }
+    }
+}
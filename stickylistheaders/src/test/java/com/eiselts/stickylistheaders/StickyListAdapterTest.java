@@ -0,0 +1,235 @@
+package com.eiselts.stickylistheaders;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowInstrumentation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Submits lists to a {@link StickyListAdapter} and checks the ranges of rows it reports as
+ * replaced, and that a list showing it only binds the rows which were inserted or changed.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class StickyListAdapterTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int ROW_HEIGHT = 40;
+    private static final int HEADER_HEIGHT = 30;
+    private static final int SECTION_SIZE = 5;
+
+    private Context mContext;
+    private RowAdapter mAdapter;
+    // the replaced ranges reported since the last list, start, removed and inserted count
+    private final List<List<Integer>> mRanges = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        ShadowInstrumentation.getInstrumentation().setInTouchMode(true);
+        final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mContext = activity;
+        mAdapter = new RowAdapter(mContext);
+        mAdapter.registerDataSetObserver(new RangeDataSetObserver() {
+            @Override
+            void onItemRangeReplaced(int positionStart, int removedCount, int insertedCount) {
+                mRanges.add(Arrays.asList(positionStart, removedCount, insertedCount));
+            }
+        });
+        submit(rows(0, 10));
+    }
+
+    @Test
+    public void insertRow_reportsInsertedRange() {
+        final List<Row> rows = rows(0, 10);
+        rows.add(3, new Row(100, "new", 0));
+        submit(rows);
+
+        assertRanges(range(3, 0, 1));
+    }
+
+    @Test
+    public void removeRow_reportsRemovedRange() {
+        final List<Row> rows = rows(0, 10);
+        rows.remove(6);
+        rows.remove(6);
+        submit(rows);
+
+        assertRanges(range(6, 2, 0));
+    }
+
+    @Test
+    public void changeRows_reportsChangedRange() {
+        final List<Row> rows = rows(0, 10);
+        rows.set(4, new Row(4, "changed", rows.get(4).mHeaderId));
+        rows.set(5, new Row(5, "changed", rows.get(5).mHeaderId));
+        submit(rows);
+
+        assertRanges(range(4, 2, 2));
+    }
+
+    @Test
+    public void changeHeaderIdOnly_reportsChangedRange() {
+        final List<Row> rows = rows(0, 10);
+        final Row row = rows.get(7);
+        rows.set(7, new Row(row.mId, row.mText, row.mHeaderId + 1));
+        submit(rows);
+
+        assertRanges(range(7, 1, 1));
+    }
+
+    @Test
+    public void severalChanges_reportRangesInNewPositions() {
+        final List<Row> rows = rows(0, 10);
+        rows.add(1, new Row(100, "new", 0));
+        // old row 4, at 5 in the new list
+        rows.remove(5);
+        rows.set(8, new Row(7, "changed", rows.get(8).mHeaderId));
+        submit(rows);
+
+        assertRanges(range(1, 0, 1), range(5, 1, 0), range(8, 1, 1));
+    }
+
+    @Test
+    public void insertRow_keepsBindingOfRowsBelow() {
+        submit(rows(0, 100));
+        final StickyListHeadersListView listView = showList();
+        final int firstRow = 6;
+        final int lastRow = listView.getWrappedList().getLastVisiblePosition();
+
+        final List<Row> rows = rows(0, 100);
+        rows.add(firstRow, new Row(1000, "new", rows.get(firstRow).mHeaderId));
+        mAdapter.mBoundIds.clear();
+        submit(rows);
+
+        // The last row was pushed off the screen, the others below the new row moved down
+        assertEquals(lastRow, listView.getWrappedList().getLastVisiblePosition());
+        assertEquals(Arrays.asList(1000L), mAdapter.mBoundIds);
+    }
+
+    private StickyListHeadersListView showList() {
+        final StickyListHeadersListView listView = new StickyListHeadersListView(mContext);
+        ((Activity) mContext).setContentView(listView,
+                new ViewGroup.LayoutParams(WIDTH, HEIGHT));
+        listView.setAdapter(mAdapter);
+        idle();
+        return listView;
+    }
+
+    private void submit(List<Row> rows) {
+        mRanges.clear();
+        mAdapter.submitList(rows);
+        idle();
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private void assertRanges(List<?>... ranges) {
+        assertEquals(Arrays.asList(ranges), mRanges);
+    }
+
+    private static List<Integer> range(int positionStart, int removedCount, int insertedCount) {
+        return Arrays.asList(positionStart, removedCount, insertedCount);
+    }
+
+    // Rows with ids [start, end), a section per SECTION_SIZE ids
+    private static List<Row> rows(int start, int end) {
+        final List<Row> rows = new ArrayList<>();
+        for (int id = start; id < end; id++) {
+            rows.add(new Row(id, "row " + id, id / SECTION_SIZE));
+        }
+        return rows;
+    }
+
+    private static final class Row {
+
+        final long mId;
+        final String mText;
+        final long mHeaderId;
+
+        Row(long id, String text, long headerId) {
+            mId = id;
+            mText = text;
+            mHeaderId = headerId;
+        }
+    }
+
+    /** Adapter of rows diffed on the calling thread, recording the ids of the rows it binds. */
+    private static class RowAdapter extends StickyListAdapter<Row> {
+
+        private final Context mContext;
+        final List<Long> mBoundIds = new ArrayList<>();
+
+        RowAdapter(Context context) {
+            super(new DiffUtil.ItemCallback<Row>() {
+                @Override
+                public boolean areItemsTheSame(Row oldItem, Row newItem) {
+                    return oldItem.mId == newItem.mId;
+                }
+
+                @Override
+                public boolean areContentsTheSame(Row oldItem, Row newItem) {
+                    return oldItem.mText.equals(newItem.mText);
+                }
+            }, Runnable::run);
+            mContext = context;
+        }
+
+        @Override
+        protected long getItemHeaderId(Row item) {
+            return item.mHeaderId;
+        }
+
+        @Override
+        protected long getStableItemId(Row item) {
+            return item.mId;
+        }
+
+        @Override
+        public View getHeaderView(int position, View convertView, ViewGroup parent) {
+            return obtainTextView(convertView, "header " + getHeaderId(position), HEADER_HEIGHT);
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            final Row row = getItem(position);
+            mBoundIds.add(row.mId);
+            return obtainTextView(convertView, row.mText, ROW_HEIGHT);
+        }
+
+        private TextView obtainTextView(View convertView, String text, int height) {
+            TextView textView = (TextView) convertView;
+            if (textView == null) {
+                textView = new TextView(mContext);
+                textView.setLayoutParams(new AbsListView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, height));
+            }
+            textView.setText(text);
+            return textView;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.eiselts.stickylistheaders;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowAbsListView;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that keeping the sticky header of a {@link StickyListHeadersListView} up to date while
+ * scrolling allocates nothing, and that drawing it and handing a touch on the header over to
+ * the list allocate no more than the framework does. Robolectric allocates drawing any view and
+ * dispatching any touch, so drawing as many plain views and dispatching the same touches to the
+ * header and list directly are the baseline there rather than zero.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class StickyListHeadersListViewAllocationTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int ROW_HEIGHT = 40;
+    private static final int HEADER_HEIGHT = 30;
+    private static final int SECTION_SIZE = 7;
+    private static final int ITEM_COUNT = 1000;
+
+    private static final int WARM_UP_FRAMES = 200;
+    // Robolectric links call sites lazily and allocates doing so, at unpredictable times.
+    // Allocations of the library happen in every block, so the cheapest block is checked.
+    private static final int MEASURED_BLOCKS = 10;
+    private static final int FRAMES_PER_BLOCK = 100;
+    // back and forth over more than a row, so rows and headers are recycled every cycle
+    private static final int FRAMES_PER_DIRECTION = 10;
+    private static final int SCROLL_PER_FRAME = 7;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Context mContext;
+    private StickyListHeadersListView mListView;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.getApplication();
+        mListView = new StickyListHeadersListView(mContext);
+        mListView.setAdapter(new FixedSizeAdapter(mContext));
+        measureAndLayout(mListView);
+
+        // Start on the last row of a section, so scrolling pushes the sticky header out and
+        // swaps it for the next one
+        mListView.getWrappedList().setSelectionFromTop(SECTION_SIZE * 4 - 1, 0);
+        measureAndLayout(mListView);
+        // Robolectric never calls the scroll listener on its own, so no header is shown yet
+        scrollAndUpdateHeader(0);
+        measureAndLayout(mListView);
+    }
+
+    @Test
+    public void headerUpdates_doNotAllocate() {
+        int frame = 0;
+        for (; frame < WARM_UP_FRAMES; frame++) {
+            scrollAndUpdateHeader(frame);
+        }
+
+        long minAllocatedBytes = Long.MAX_VALUE;
+        for (int block = 0; block < MEASURED_BLOCKS; block++) {
+            long allocatedBytes = 0;
+            for (int end = frame + FRAMES_PER_BLOCK; frame < end; frame++) {
+                allocatedBytes += scrollAndUpdateHeader(frame);
+            }
+            minAllocatedBytes = Math.min(minAllocatedBytes, allocatedBytes);
+        }
+
+        assertEquals("Bytes allocated by " + FRAMES_PER_BLOCK + " sticky header updates",
+                0, minAllocatedBytes);
+    }
+
+    @Test
+    public void draws_allocateNoMoreThanFramework() {
+        final Canvas canvas = new Canvas(
+                Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        final View view = new View(mContext);
+        measureAndLayout(view);
+        assertEquals("List and sticky header", 2, mListView.getChildCount());
+
+        // Robolectric allocates the same for every view it draws
+        final long viewAllocatedBytes = minAllocatedBytes(() -> view.draw(canvas));
+        final long allocatedBytes = minAllocatedBytes(() -> mListView.draw(canvas));
+
+        assertEquals("Bytes allocated by " + FRAMES_PER_BLOCK + " draws",
+                viewAllocatedBytes * (1 + countDrawnDescendants(mListView)), allocatedBytes);
+    }
+
+    @Test
+    public void headerTouches_allocateNoMoreThanFramework() {
+        final View header = stickyHeader();
+        final AbsListView list = mListView.getWrappedList();
+        final long downTime = SystemClock.uptimeMillis();
+        final float x = WIDTH / 2f;
+        final float y = HEADER_HEIGHT / 2f;
+        final MotionEvent down = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_DOWN, x, y, 0);
+        final MotionEvent move = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_MOVE, x, y + HEADER_HEIGHT, 0);
+        final MotionEvent up = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_UP, x, y + HEADER_HEIGHT, 0);
+        final MotionEvent cancel = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_CANCEL, x, y + HEADER_HEIGHT, 0);
+
+        final long allocatedBytes = minAllocatedBytes(() -> {
+            mListView.dispatchTouchEvent(down);
+            mListView.dispatchTouchEvent(move);
+            mListView.dispatchTouchEvent(up);
+        });
+        // The header takes the down and is cancelled by the move, which the list gets as
+        // the down of its own gesture
+        final long childrenAllocatedBytes = minAllocatedBytes(() -> {
+            header.dispatchTouchEvent(down);
+            header.dispatchTouchEvent(cancel);
+            list.dispatchTouchEvent(down);
+            list.dispatchTouchEvent(up);
+        });
+
+        assertEquals("Bytes allocated by " + FRAMES_PER_BLOCK + " gestures on the header",
+                childrenAllocatedBytes, allocatedBytes);
+    }
+
+    @Test
+    public void headerTouch_restoresDispatchedEvent() {
+        final long downTime = SystemClock.uptimeMillis();
+        final float x = WIDTH / 2f;
+        final float y = HEADER_HEIGHT / 2f;
+        final MotionEvent down = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_DOWN, x, y, 0);
+        final MotionEvent move = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_MOVE, x, y + HEADER_HEIGHT, 0);
+
+        mListView.dispatchTouchEvent(down);
+        mListView.dispatchTouchEvent(move);
+
+        // the header hands the gesture over to the list by rewriting the event in place
+        assertEquals(MotionEvent.ACTION_MOVE, move.getAction());
+        assertEquals(x, move.getX(), 0f);
+        assertEquals(y + HEADER_HEIGHT, move.getY(), 0f);
+    }
+
+    private static void measureAndLayout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    // Scrolls the list by one frame and returns the bytes allocated updating the sticky header
+    private long scrollAndUpdateHeader(int frame) {
+        final AbsListView list = mListView.getWrappedList();
+        final boolean isScrollingDown = (frame / FRAMES_PER_DIRECTION) % 2 == 0;
+        list.scrollListBy(isScrollingDown ? SCROLL_PER_FRAME : -SCROLL_PER_FRAME);
+
+        // Robolectric's shadow holds on to the scroll listener instead of calling it
+        final AbsListView.OnScrollListener listener =
+                ((ShadowAbsListView) Shadow.extract(list)).getOnScrollListener();
+        final int firstVisiblePosition = list.getFirstVisiblePosition();
+        final int childCount = list.getChildCount();
+        final int count = list.getCount();
+        final long allocatedBefore = allocatedBytes();
+        listener.onScroll(list, firstVisiblePosition, childCount, count);
+        return allocatedBytes() - allocatedBefore;
+    }
+
+    // Runs the frame until call sites are linked and returns the bytes allocated by the
+    // cheapest block of frames
+    private static long minAllocatedBytes(Runnable frame) {
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            frame.run();
+        }
+
+        long minAllocatedBytes = Long.MAX_VALUE;
+        for (int block = 0; block < MEASURED_BLOCKS; block++) {
+            final long allocatedBefore = allocatedBytes();
+            for (int i = 0; i < FRAMES_PER_BLOCK; i++) {
+                frame.run();
+            }
+            minAllocatedBytes = Math.min(minAllocatedBytes, allocatedBytes() - allocatedBefore);
+        }
+        return minAllocatedBytes;
+    }
+
+    // Counts the descendants drawn with the view, view groups without anything to draw of
+    // their own only draw their children
+    private static int countDrawnDescendants(View view) {
+        if (!(view instanceof ViewGroup)) {
+            return 0;
+        }
+        final ViewGroup viewGroup = (ViewGroup) view;
+        int count = 0;
+        for (int i = 0; i < viewGroup.getChildCount(); i++) {
+            final View child = viewGroup.getChildAt(i);
+            if (child.getVisibility() == View.VISIBLE) {
+                count += (child.willNotDraw() ? 0 : 1) + countDrawnDescendants(child);
+            }
+        }
+        return count;
+    }
+
+    // The sticky header is the child drawn on top of the list
+    private View stickyHeader() {
+        assertEquals("Children", 2, mListView.getChildCount());
+        return mListView.getChildAt(1);
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** Adapter whose rows and headers are plain views, so binding them allocates nothing. */
+    private static class FixedSizeAdapter extends BaseAdapter implements StickyListHeadersAdapter {
+
+        private final Context mContext;
+
+        FixedSizeAdapter(Context context) {
+            mContext = context;
+        }
+
+        @Override
+        public View getHeaderView(int position, View convertView, ViewGroup parent) {
+            if (convertView == null) {
+                convertView = new View(mContext);
+                convertView.setLayoutParams(new AbsListView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, HEADER_HEIGHT));
+            }
+            return convertView;
+        }
+
+        @Override
+        public long getHeaderId(int position) {
+            return position / SECTION_SIZE;
+        }
+
+        @Override
+        public int getCount() {
+            return ITEM_COUNT;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            if (convertView == null) {
+                convertView = new View(mContext);
+                convertView.setLayoutParams(new AbsListView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ROW_HEIGHT));
+            }
+            return convertView;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package com.eiselts.stickylistheaders;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+import android.widget.BaseAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowAbsListView;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowInstrumentation;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Drives a {@link StickyListHeadersListView} through scripted scrolls, flings and data changes
+ * and bounds the work done per scrolled row. The list is much longer than the bounds, so work
+ * which grows with the size of the list on any frame fails these tests.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class StickyListHeadersListViewScrollTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int ROW_HEIGHT = 40;
+    private static final int HEADER_HEIGHT = 30;
+    private static final int SECTION_SIZE = 7;
+    private static final int ITEM_COUNT = 100000;
+    private static final int FRAME_MILLIS = 16;
+
+    // Rows partly visible at the top and bottom of the list
+    private static final int VISIBLE_ROWS = HEIGHT / ROW_HEIGHT + 2;
+    private static final int SCROLLED_ROWS = 300;
+    private static final int SCROLL_PER_FRAME = 13;
+    private static final int FLING_VELOCITY = 8000;
+    private static final int MAX_FLING_FRAMES = 600;
+    private static final int MAX_SCROLL_WRAPPER_CREATIONS = 2;
+
+    private Context mContext;
+    private StickyListHeadersListView mListView;
+    private CountingAdapter mAdapter;
+    private Canvas mCanvas;
+    private int mLayoutCount;
+    // every wrapper the list ever showed, to count those it created
+    private final Set<View> mWrappers =
+            Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
+    private int mWrapperCreationCount;
+
+    @Before
+    public void setUp() {
+        // A device is in touch mode while the user scrolls, so layouts keep the scroll position
+        // instead of moving to the selected row
+        ShadowInstrumentation.getInstrumentation().setInTouchMode(true);
+        final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        mContext = activity;
+        mListView = new StickyListHeadersListView(mContext);
+        activity.setContentView(mListView, new ViewGroup.LayoutParams(WIDTH, HEIGHT));
+        mListView.getViewTreeObserver().addOnGlobalLayoutListener(
+                new ViewTreeObserver.OnGlobalLayoutListener() {
+                    @Override
+                    public void onGlobalLayout() {
+                        mLayoutCount++;
+                    }
+                });
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        mAdapter = new CountingAdapter(mContext);
+    }
+
+    @Test
+    public void scroll_boundsWorkPerRow() {
+        setAdapter();
+        final AbsListView list = mListView.getWrappedList();
+        final int rowsToScroll = SCROLLED_ROWS * ROW_HEIGHT;
+        for (int scrolled = 0; scrolled < rowsToScroll; scrolled += SCROLL_PER_FRAME) {
+            list.scrollListBy(SCROLL_PER_FRAME);
+            frame();
+        }
+
+        assertScrollBounds(list.getFirstVisiblePosition());
+    }
+
+    @Test
+    public void scrollBackAndForth_boundsWorkPerRow() {
+        setAdapter();
+        final AbsListView list = mListView.getWrappedList();
+        // Moves two sections down and one up per cycle, so every cycle rebinds the sticky
+        // header and scrolls rows back in which were recycled before. Rows moved up count as
+        // scrolled rows too.
+        final int cycleRows = SECTION_SIZE * 3;
+        int scrolledRows = 0;
+        while (scrolledRows < SCROLLED_ROWS) {
+            for (int scrolled = 0; scrolled < 2 * SECTION_SIZE * ROW_HEIGHT;
+                    scrolled += SCROLL_PER_FRAME) {
+                list.scrollListBy(SCROLL_PER_FRAME);
+                frame();
+            }
+            for (int scrolled = 0; scrolled < SECTION_SIZE * ROW_HEIGHT;
+                    scrolled += SCROLL_PER_FRAME) {
+                list.scrollListBy(-SCROLL_PER_FRAME);
+                frame();
+            }
+            scrolledRows += cycleRows;
+        }
+
+        assertScrollBounds(scrolledRows);
+    }
+
+    @Test
+    public void fling_boundsWorkPerRow() {
+        setAdapter();
+        final AbsListView list = mListView.getWrappedList();
+        list.fling(FLING_VELOCITY);
+        int frames = 0;
+        int lastFirstVisiblePosition = -1;
+        // Frames until the fling comes to rest
+        while (frames < MAX_FLING_FRAMES
+                && list.getFirstVisiblePosition() != lastFirstVisiblePosition) {
+            lastFirstVisiblePosition = list.getFirstVisiblePosition();
+            for (int i = 0; i < 10; i++, frames++) {
+                frame();
+            }
+        }
+
+        final int scrolledRows = list.getFirstVisiblePosition();
+        assertTrue("Fling scrolled " + scrolledRows + " rows", scrolledRows > VISIBLE_ROWS);
+        assertScrollBounds(scrolledRows);
+    }
+
+    @Test
+    public void fling_lightweightAdapter_bindsInFullOnceSettled() {
+        final LightweightCountingAdapter adapter = new LightweightCountingAdapter(mContext);
+        mAdapter = adapter;
+        setAdapter();
+        final AbsListView list = mListView.getWrappedList();
+        final AbsListView.OnScrollListener listener =
+                ((ShadowAbsListView) Shadow.extract(list)).getOnScrollListener();
+        listener.onScrollStateChanged(list, AbsListView.OnScrollListener.SCROLL_STATE_FLING);
+        list.fling(FLING_VELOCITY);
+        int frames = 0;
+        int lastFirstVisiblePosition = -1;
+        while (frames < MAX_FLING_FRAMES
+                && list.getFirstVisiblePosition() != lastFirstVisiblePosition) {
+            lastFirstVisiblePosition = list.getFirstVisiblePosition();
+            for (int i = 0; i < 10; i++, frames++) {
+                frame();
+            }
+        }
+
+        final int scrolledRows = list.getFirstVisiblePosition();
+        assertTrue("Fling scrolled " + scrolledRows + " rows", scrolledRows > VISIBLE_ROWS);
+        assertEquals("getView calls while flinging", 0, adapter.mGetViewCount);
+        assertAtMost("getLightweightView calls", scrolledRows + VISIBLE_ROWS,
+                adapter.mGetLightweightViewCount);
+
+        // A single row per frame, the deferred binds are spread over the next frames. Robolectric
+        // runs a frame as soon as one is requested unless its choreographer is paused.
+        mListView.setDeferredBindFrameBudget(0);
+        ShadowChoreographer.setPaused(true);
+        ShadowChoreographer.setFrameDelay(Duration.ofMillis(FRAME_MILLIS));
+        listener.onScrollStateChanged(list, AbsListView.OnScrollListener.SCROLL_STATE_IDLE);
+        frame();
+        assertAtMost("getView calls in the first frame", 2, adapter.mGetViewCount);
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            frame();
+        }
+        assertEquals("getView calls once settled", list.getChildCount(), adapter.mGetViewCount);
+        for (int i = 0; i < list.getChildCount(); i++) {
+            assertFalse("Row " + i + " bound in full",
+                    ((WrapperView) list.getChildAt(i)).mIsBindDeferred);
+        }
+    }
+
+    @Test
+    public void interleavedHeaderRows_scroll_boundsWorkPerRow() {
+        mListView.setInterleavedHeaderRows(true);
+        setAdapter();
+        final AbsListView list = mListView.getWrappedList();
+        final int rowsToScroll = SCROLLED_ROWS * ROW_HEIGHT;
+        for (int scrolled = 0; scrolled < rowsToScroll; scrolled += SCROLL_PER_FRAME) {
+            list.scrollListBy(SCROLL_PER_FRAME);
+            frame();
+        }
+
+        // Header rows are rows of the list, but not of the adapter
+        final int scrolledRows = mListView.getSectionForPosition(
+                list.getFirstVisiblePosition()) * SECTION_SIZE;
+        assertTrue("Scrolled " + scrolledRows + " rows", scrolledRows > SCROLLED_ROWS / 2);
+        final int scrolledSections = scrolledRows / SECTION_SIZE + 1;
+        assertAtMost("getView calls", scrolledRows + VISIBLE_ROWS, mAdapter.mGetViewCount);
+        // a header row per section, and the sticky header for some of them
+        assertAtMost("getHeaderView calls", 2 * scrolledSections + VISIBLE_ROWS,
+                mAdapter.mGetHeaderViewCount);
+        assertEquals("getHeaderId calls", 0, mAdapter.mGetHeaderIdCount);
+        assertAtMost("Row measures", scrolledRows + VISIBLE_ROWS, mAdapter.mRowMeasureCount);
+        assertAtMost("Layout passes", 1, mLayoutCount);
+    }
+
+    @Test
+    public void notifyDataSetChanged_rebindsVisibleRowsOnly() {
+        setAdapter();
+        scrollTo(SECTION_SIZE * 100 + 3);
+
+        mAdapter.notifyDataSetChanged();
+        frame();
+
+        assertAtMost("getView calls", VISIBLE_ROWS, mAdapter.mGetViewCount);
+        // the sticky header and the inline headers of the visible rows
+        assertAtMost("getHeaderView calls", VISIBLE_ROWS + 1, mAdapter.mGetHeaderViewCount);
+        // rebuilding the section index asks for every header id once
+        assertAtMost("getHeaderId calls", ITEM_COUNT, mAdapter.mGetHeaderIdCount);
+        assertEquals("Wrapper creations", 0, mWrapperCreationCount);
+        assertAtMost("Layout passes", 1, mLayoutCount);
+    }
+
+    @Test
+    public void notifyDataSetChanged_rebindsStickyHeaderInPlace() {
+        setAdapter();
+        scrollTo(SECTION_SIZE * 100 + 3);
+        final View stickyHeader = mListView.getChildAt(1);
+        final int visibleSectionStarts = mListView.getWrappedList().getChildCount() / SECTION_SIZE + 1;
+
+        // Changes before the next frame are handled together
+        for (int i = 0; i < 5; i++) {
+            mAdapter.notifyDataSetChanged();
+        }
+        frame();
+
+        assertEquals("Sticky header view", stickyHeader, mListView.getChildAt(1));
+        assertAtMost("getHeaderView calls", visibleSectionStarts + 1,
+                mAdapter.mGetHeaderViewCount);
+        assertAtMost("Layout passes", 1, mLayoutCount);
+    }
+
+    @Test
+    public void invalidateViews_rebindsVisibleRows() {
+        setAdapter();
+        scrollTo(SECTION_SIZE * 100 + 3);
+        final int visibleRows = mListView.getWrappedList().getChildCount();
+
+        // The rows may show state of the adapter which changed without a notification
+        mListView.getWrappedList().invalidateViews();
+        frame();
+
+        assertEquals("getView calls", visibleRows, mAdapter.mGetViewCount);
+    }
+
+    @Test
+    public void notifyItemRangeInserted_indexesTheChangedSectionsOnly() {
+        setAdapter();
+        final int firstVisiblePosition = SECTION_SIZE * 100 + 3;
+        scrollTo(firstVisiblePosition);
+
+        mAdapter.mCount++;
+        mListView.notifyItemRangeInserted(firstVisiblePosition + 2, 1);
+        frame();
+
+        assertAtMost("getView calls", VISIBLE_ROWS, mAdapter.mGetViewCount);
+        assertAtMost("getHeaderView calls", VISIBLE_ROWS + 1, mAdapter.mGetHeaderViewCount);
+        // the sections around the inserted row, not the whole list
+        assertAtMost("getHeaderId calls", 4 * SECTION_SIZE, mAdapter.mGetHeaderIdCount);
+        assertEquals("Wrapper creations", 0, mWrapperCreationCount);
+        assertAtMost("Layout passes", 1, mLayoutCount);
+    }
+
+    @Test
+    public void sectionIndexExecutor_dataSetShrinksDuringBuild_fallsBackToLookups() {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        mListView.setSectionIndexExecutor(tasks::add);
+        setAdapter();
+        assertEquals("Section index builds", 1, tasks.size());
+
+        // The build reads positions which are gone, like a list cleared on the main thread
+        mAdapter.mCount = SECTION_SIZE * 10;
+        tasks.remove().run();
+        mAdapter.notifyDataSetChanged();
+        frame();
+        tasks.remove().run();
+        frame();
+
+        assertEquals("Sticky header section", 0, mListView.getSectionForPosition(0));
+        assertEquals("Rows", SECTION_SIZE * 10, mListView.getWrappedList().getCount());
+    }
+
+    private void setAdapter() {
+        mListView.setAdapter(mAdapter);
+        frame();
+        resetCounts();
+    }
+
+    private void scrollTo(int position) {
+        mListView.getWrappedList().setSelectionFromTop(position, 0);
+        frame();
+        resetCounts();
+    }
+
+    // Runs the main thread for one frame and draws the list, like the framework would
+    private void frame() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(FRAME_MILLIS));
+        final AbsListView list = mListView.getWrappedList();
+        // Robolectric's shadow holds on to the scroll listener instead of calling it, so the
+        // sticky header is updated here like the list would after scrolling
+        final AbsListView.OnScrollListener listener =
+                ((ShadowAbsListView) Shadow.extract(list)).getOnScrollListener();
+        listener.onScroll(list, list.getFirstVisiblePosition(), list.getChildCount(),
+                list.getCount());
+        mListView.draw(mCanvas);
+        for (int i = 0; i < list.getChildCount(); i++) {
+            final View child = list.getChildAt(i);
+            if (child instanceof WrapperView && mWrappers.add(child)) {
+                mWrapperCreationCount++;
+            }
+        }
+    }
+
+    private void resetCounts() {
+        mAdapter.resetCounts();
+        mLayoutCount = 0;
+        mWrapperCreationCount = 0;
+    }
+
+    private void assertScrollBounds(int scrolledRows) {
+        final int scrolledSections = scrolledRows / SECTION_SIZE + 1;
+        // every row scrolled in is bound once
+        assertAtMost("getView calls", scrolledRows + VISIBLE_ROWS, mAdapter.mGetViewCount);
+        // an inline header per section start and the sticky header per section
+        assertAtMost("getHeaderView calls", 2 * scrolledSections + VISIBLE_ROWS,
+                mAdapter.mGetHeaderViewCount);
+        // header ids come from the section index
+        assertEquals("getHeaderId calls", 0, mAdapter.mGetHeaderIdCount);
+        // wrappers are recycled, those of the first screen are enough for any scroll
+        assertAtMost("Wrapper creations", MAX_SCROLL_WRAPPER_CREATIONS, mWrapperCreationCount);
+        assertAtMost("Row measures", scrolledRows + VISIBLE_ROWS, mAdapter.mRowMeasureCount);
+        // the sticky header is attached once, rebinding it later only lays out the header
+        assertAtMost("Layout passes", 1, mLayoutCount);
+    }
+
+    private static void assertAtMost(String message, int max, int actual) {
+        assertTrue(message + ": " + actual + " > " + max, actual <= max);
+    }
+
+    /** Adapter counting the calls the list makes to it and the measures of its rows. */
+    private static class CountingAdapter extends BaseAdapter implements StickyListHeadersAdapter {
+
+        private final Context mContext;
+        int mCount = ITEM_COUNT;
+        int mGetViewCount;
+        int mGetHeaderViewCount;
+        int mGetHeaderIdCount;
+        int mRowMeasureCount;
+
+        CountingAdapter(Context context) {
+            mContext = context;
+        }
+
+        void resetCounts() {
+            mGetViewCount = 0;
+            mGetHeaderViewCount = 0;
+            mGetHeaderIdCount = 0;
+            mRowMeasureCount = 0;
+        }
+
+        @Override
+        public View getHeaderView(int position, View convertView, ViewGroup parent) {
+            mGetHeaderViewCount++;
+            if (convertView == null) {
+                convertView = new View(mContext);
+                convertView.setLayoutParams(new AbsListView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, HEADER_HEIGHT));
+            }
+            return convertView;
+        }
+
+        @Override
+        public long getHeaderId(int position) {
+            mGetHeaderIdCount++;
+            if (position >= mCount) {
+                throw new IndexOutOfBoundsException("Position " + position + " of " + mCount);
+            }
+            return position / SECTION_SIZE;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            mGetViewCount++;
+            return obtainRow(convertView);
+        }
+
+        View obtainRow(View convertView) {
+            if (convertView == null) {
+                convertView = new View(mContext) {
+                    @Override
+                    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+                        mRowMeasureCount++;
+                        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+                    }
+                };
+                convertView.setLayoutParams(new AbsListView.LayoutParams(
+                        ViewGroup.LayoutParams.MATCH_PARENT, ROW_HEIGHT));
+            }
+            return convertView;
+        }
+    }
+
+    /** Counting adapter whose rows are bound lightweight while the list is flinging. */
+    private static class LightweightCountingAdapter extends CountingAdapter
+            implements StickyListHeadersLightweightAdapter {
+
+        int mGetLightweightViewCount;
+
+        LightweightCountingAdapter(Context context) {
+            super(context);
+        }
+
+        @Override
+        void resetCounts() {
+            super.resetCounts();
+            mGetLightweightViewCount = 0;
+        }
+
+        @Override
+        public View getLightweightView(int position, View convertView, ViewGroup parent) {
+            mGetLightweightViewCount++;
+            return obtainRow(convertView);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.eiselts.stickylistheaders;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Changes a {@link StickyListHeadersRecyclerAdapter} at section boundaries and checks that
+ * every row shows its inline header if and only if it starts a section. Rows are only bound
+ * when a notification of the adapter asks for it, like a RecyclerView binds them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class StickyListHeadersRecyclerAdapterTest {
+
+    private Context mContext;
+    private ViewGroup mParent;
+    private RowAdapter mDelegate;
+    private StickyListHeadersRecyclerAdapter mAdapter;
+    // the rows bound so far, and whether each has to be bound again
+    private final List<StickyListHeadersRecyclerAdapter.ViewHolder> mRows = new ArrayList<>();
+    private final List<Boolean> mIsRowStale = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.getApplication();
+        mParent = new FrameLayout(mContext);
+        mDelegate = new RowAdapter(mContext, 0, 0, 0, 1, 1, 1, 2, 2);
+        mAdapter = new StickyListHeadersRecyclerAdapter(mContext, mDelegate);
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                for (int i = 0; i < itemCount; i++) {
+                    mIsRowStale.set(positionStart + i, true);
+                }
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                for (int i = 0; i < itemCount; i++) {
+                    mRows.add(positionStart + i, mAdapter.onCreateViewHolder(mParent, 0));
+                    mIsRowStale.add(positionStart + i, true);
+                }
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                for (int i = 0; i < itemCount; i++) {
+                    mRows.remove(positionStart);
+                    mIsRowStale.remove(positionStart);
+                }
+            }
+        });
+        for (int position = 0; position < mAdapter.getItemCount(); position++) {
+            mRows.add(mAdapter.onCreateViewHolder(mParent, 0));
+            mIsRowStale.add(true);
+        }
+        layout();
+    }
+
+    @Test
+    public void insertBeforeSectionStart_movesInlineHeader() {
+        mDelegate.mHeaderIds.add(3, 1L);
+        mAdapter.notifyItemRangeInserted(3, 1);
+        layout();
+
+        assertRowsMatchSections();
+    }
+
+    @Test
+    public void insertNewSectionBeforeSectionStart_keepsInlineHeaders() {
+        mDelegate.mHeaderIds.add(3, 5L);
+        mAdapter.notifyItemRangeInserted(3, 1);
+        layout();
+
+        assertRowsMatchSections();
+    }
+
+    @Test
+    public void removeSectionStart_movesInlineHeader() {
+        mDelegate.mHeaderIds.remove(3);
+        mAdapter.notifyItemRangeRemoved(3, 1);
+        layout();
+
+        assertRowsMatchSections();
+    }
+
+    @Test
+    public void removeAcrossSectionStart_movesInlineHeader() {
+        mDelegate.mHeaderIds.remove(2);
+        mDelegate.mHeaderIds.remove(2);
+        mAdapter.notifyItemRangeRemoved(2, 2);
+        layout();
+
+        assertRowsMatchSections();
+    }
+
+    // Binds the rows the notifications asked for, after all of them were dispatched
+    private void layout() {
+        assertEquals("Rows", mAdapter.getItemCount(), mRows.size());
+        for (int position = 0; position < mRows.size(); position++) {
+            if (mIsRowStale.get(position)) {
+                mAdapter.onBindViewHolder(mRows.get(position), position);
+                mIsRowStale.set(position, false);
+            }
+        }
+    }
+
+    private void assertRowsMatchSections() {
+        final List<Long> headerIds = mDelegate.mHeaderIds;
+        for (int position = 0; position < mRows.size(); position++) {
+            final WrapperView wv = (WrapperView) mRows.get(position).itemView;
+            final boolean isSectionStart = position == 0
+                    || !headerIds.get(position).equals(headerIds.get(position - 1));
+            assertEquals("Header of row " + position, isSectionStart, wv.hasHeader());
+            if (isSectionStart) {
+                assertEquals("Header text of row " + position, "h" + headerIds.get(position),
+                        ((TextView) wv.getHeader()).getText().toString());
+            }
+        }
+    }
+
+    /** Adapter showing rows of the given header ids. */
+    private static class RowAdapter extends BaseAdapter implements StickyListHeadersAdapter {
+
+        private final Context mContext;
+        final List<Long> mHeaderIds = new ArrayList<>();
+
+        RowAdapter(Context context, long... headerIds) {
+            mContext = context;
+            for (long headerId : headerIds) {
+                mHeaderIds.add(headerId);
+            }
+        }
+
+        @Override
+        public View getHeaderView(int position, View convertView, ViewGroup parent) {
+            final TextView header = convertView != null
+                    ? (TextView) convertView : new TextView(mContext);
+            header.setText("h" + mHeaderIds.get(position));
+            return header;
+        }
+
+        @Override
+        public long getHeaderId(int position) {
+            return mHeaderIds.get(position);
+        }
+
+        @Override
+        public int getCount() {
+            return mHeaderIds.size();
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return mHeaderIds.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            return convertView != null ? convertView : new TextView(mContext);
+        }
+    }
+}